@@ -0,0 +1,134 @@
+package DOO.DD.DD02.benchmarks;
+
+import DOO.DD.DD02.v002extensible.Aleatorio;
+import DOO.DD.DD02.v002extensible.Aspiradora;
+import DOO.DD.DD02.v002extensible.CeldaLimpia;
+import DOO.DD.DD02.v002extensible.Despacho;
+import DOO.DD.DD02.v002extensible.Gato;
+import DOO.DD.DD02.v002extensible.Mundo;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Mismo número de turnos (un paso de la aspiradora y uno del gato) con las tres formas de decidir
+// qué hacer en la celda: cadenas de instanceof (v000mal), visitante y switch sobre el código de tipo.
+// Los mundos v002 llevan estaciones para que aceptar() vea los cinco tipos de celda.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DespachoCeldasBenchmark {
+    private static final int TURNOS = 1000;
+    
+    @Param({"100x200", "1000x1000"})
+    public String tamano;
+    
+    @Param({"30"})
+    public int porcentajeSuciedad;
+    
+    private DOO.DD.DD02.v000mal.Mundo mundoV000;
+    private DOO.DD.DD02.v000mal.Aspiradora aspiradoraV000;
+    private DOO.DD.DD02.v000mal.Gato gatoV000;
+    
+    private Mundo mundoVisitante;
+    private Aspiradora aspiradoraVisitante;
+    private Gato gatoVisitante;
+    
+    private Mundo mundoTipo;
+    private Aspiradora aspiradoraTipo;
+    private Gato gatoTipo;
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        SalidaNula.activar();
+        int filas = SalidaNula.filas(tamano);
+        int columnas = SalidaNula.columnas(tamano);
+        
+        mundoV000 = new DOO.DD.DD02.v000mal.Mundo(filas, columnas);
+        mundoV000.generarObstaculos(5);
+        mundoV000.generarSuciedad(porcentajeSuciedad);
+        mundoV000.setCelda(0, 0, new DOO.DD.DD02.v000mal.CeldaLimpia(0, 0));
+        aspiradoraV000 = new DOO.DD.DD02.v000mal.Aspiradora(0, 0);
+        gatoV000 = new DOO.DD.DD02.v000mal.Gato(0, 0, Integer.MAX_VALUE);
+        
+        mundoVisitante = crearMundo(filas, columnas);
+        aspiradoraVisitante = new Aspiradora(0, 0, new Aleatorio(2));
+        gatoVisitante = new Gato(0, 0, Integer.MAX_VALUE, new Aleatorio(3));
+        
+        mundoTipo = crearMundo(filas, columnas);
+        aspiradoraTipo = new Aspiradora(0, 0, new Aleatorio(2));
+        gatoTipo = new Gato(0, 0, Integer.MAX_VALUE, new Aleatorio(3));
+        aspiradoraTipo.setDespacho(Despacho.TIPO);
+        gatoTipo.setDespacho(Despacho.TIPO);
+    }
+    
+    private Mundo crearMundo(int filas, int columnas) {
+        Mundo mundo = new Mundo(filas, columnas, new Aleatorio(1));
+        mundo.generarObstaculos(5);
+        mundo.generarSuciedad(porcentajeSuciedad);
+        mundo.generarEstaciones(4, 4);
+        mundo.setCelda(0, 0, new CeldaLimpia(0, 0));
+        return mundo;
+    }
+    
+    @TearDown(Level.Trial)
+    public void restaurarSalida() {
+        SalidaNula.desactivar();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(TURNOS)
+    public int instanceOfV000() {
+        for (int turno = 0; turno < TURNOS; turno++) {
+            if (aspiradoraV000.getBateria() <= 1) {
+                aspiradoraV000.cargarBateria();
+            }
+            if (aspiradoraV000.getBasuraRecogida() >= aspiradoraV000.getCapacidadBolsa() - 1) {
+                aspiradoraV000.vaciarBolsa();
+            }
+            aspiradoraV000.moverAleatorio(mundoV000);
+            gatoV000.moverYEnsuciar(mundoV000);
+        }
+        return aspiradoraV000.getPasos();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(TURNOS)
+    public int visitante() {
+        return turnos(mundoVisitante, aspiradoraVisitante, gatoVisitante);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(TURNOS)
+    public int switchPorTipo() {
+        return turnos(mundoTipo, aspiradoraTipo, gatoTipo);
+    }
+    
+    private static int turnos(Mundo mundo, Aspiradora aspiradora, Gato gato) {
+        for (int turno = 0; turno < TURNOS; turno++) {
+            if (aspiradora.getBateria() <= 1) {
+                aspiradora.cargarBateria();
+            }
+            if (aspiradora.getBasuraRecogida() >= aspiradora.getCapacidadBolsa() - 1) {
+                aspiradora.vaciarBolsa();
+            }
+            aspiradora.moverAleatorio(mundo);
+            gato.moverYEnsuciar(mundo);
+        }
+        return aspiradora.getPasos();
+    }
+}
\ No newline at end of file
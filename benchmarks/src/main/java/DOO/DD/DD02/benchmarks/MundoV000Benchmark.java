@@ -0,0 +1,129 @@
+package DOO.DD.DD02.benchmarks;
+
+import DOO.DD.DD02.v000mal.Aspiradora;
+import DOO.DD.DD02.v000mal.CeldaLimpia;
+import DOO.DD.DD02.v000mal.Mundo;
+import DOO.DD.DD02.v000mal.Posicion;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MundoV000Benchmark {
+    @Param({"10x20", "100x200", "1000x1000", "4000x4000"})
+    public String tamano;
+    
+    @Param({"5", "30", "70"})
+    public int porcentajeSuciedad;
+    
+    private Mundo mundo;
+    private Aspiradora aspiradora;
+    private Posicion salida;
+    private Posicion objetivo;
+    
+    @Setup(Level.Trial)
+    public void prepararMundo() {
+        SalidaNula.activar();
+        mundo = new Mundo(SalidaNula.filas(tamano), SalidaNula.columnas(tamano));
+        mundo.generarObstaculos(5);
+        mundo.generarSuciedad(porcentajeSuciedad);
+    }
+    
+    @Setup(Level.Iteration)
+    public void prepararAspiradora() {
+        // Salida en una esquina y objetivo en la opuesta, ambas siempre accesibles
+        mundo.setCelda(0, 0, new CeldaLimpia(0, 0));
+        mundo.setCelda(mundo.filas - 1, mundo.columnas - 1, new CeldaLimpia(mundo.filas - 1, mundo.columnas - 1));
+        aspiradora = new Aspiradora(0, 0);
+        salida = new Posicion(0, 0);
+        objetivo = new Posicion(mundo.filas - 1, mundo.columnas - 1);
+    }
+    
+    @TearDown(Level.Trial)
+    public void restaurarSalida() {
+        SalidaNula.desactivar();
+    }
+    
+    private void mantenerAspiradora() {
+        if (aspiradora.getBateria() <= 1) {
+            aspiradora.cargarBateria();
+        }
+        if (aspiradora.getBasuraRecogida() >= aspiradora.getCapacidadBolsa() - 1) {
+            aspiradora.vaciarBolsa();
+        }
+    }
+    
+    @Benchmark
+    public Posicion moverAleatorio() {
+        mantenerAspiradora();
+        aspiradora.moverAleatorio(mundo);
+        return aspiradora.getPosicion();
+    }
+    
+    @Benchmark
+    public boolean moverHaciaObjetivo() {
+        mantenerAspiradora();
+        // Al llegar se vuelve a la esquina de salida, para que ninguna invocación mida un paso en el sitio
+        Posicion posicion = aspiradora.getPosicion();
+        if (posicion.getFila() == objetivo.getFila() && posicion.getColumna() == objetivo.getColumna()) {
+            Posicion llegada = objetivo;
+            objetivo = salida;
+            salida = llegada;
+        }
+        return aspiradora.moverHaciaObjetivo(mundo, objetivo);
+    }
+    
+    @Benchmark
+    public Posicion buscarPosicionMasSucia() {
+        return mundo.buscarPosicionMasSucia();
+    }
+    
+    @Benchmark
+    public int calcularSuciedadTotal() {
+        return mundo.calcularSuciedadTotal();
+    }
+    
+    @Benchmark
+    public void imprimir() {
+        mundo.imprimir(aspiradora, null);
+    }
+    
+    // Mundo recién creado para cada invocación de los benchmarks de generación
+    @State(Scope.Thread)
+    public static class MundoVacio {
+        Mundo mundo;
+        
+        @Setup(Level.Invocation)
+        public void crear(MundoV000Benchmark benchmark) {
+            mundo = new Mundo(benchmark.mundo.filas, benchmark.mundo.columnas);
+        }
+    }
+    
+    @Benchmark
+    public Mundo generarObstaculos(MundoVacio vacio) {
+        vacio.mundo.generarObstaculos(5);
+        return vacio.mundo;
+    }
+    
+    @Benchmark
+    public Mundo generarSuciedad(MundoVacio vacio) {
+        vacio.mundo.generarSuciedad(porcentajeSuciedad);
+        return vacio.mundo;
+    }
+}
\ No newline at end of file
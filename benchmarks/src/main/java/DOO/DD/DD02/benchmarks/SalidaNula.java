@@ -0,0 +1,34 @@
+package DOO.DD.DD02.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// Las tres versiones escriben en System.out; durante las medidas se descarta esa salida
+final class SalidaNula {
+    private static PrintStream original;
+    
+    private SalidaNula() {
+    }
+    
+    static synchronized void activar() {
+        if (original == null) {
+            original = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+    
+    static synchronized void desactivar() {
+        if (original != null) {
+            System.setOut(original);
+            original = null;
+        }
+    }
+    
+    static int filas(String tamano) {
+        return Integer.parseInt(tamano.substring(0, tamano.indexOf('x')));
+    }
+    
+    static int columnas(String tamano) {
+        return Integer.parseInt(tamano.substring(tamano.indexOf('x') + 1));
+    }
+}
\ No newline at end of file
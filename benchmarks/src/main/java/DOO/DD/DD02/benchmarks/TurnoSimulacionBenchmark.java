@@ -0,0 +1,58 @@
+package DOO.DD.DD02.benchmarks;
+
+import DOO.DD.DD02.v002extensible.Aspiradora;
+import DOO.DD.DD02.v002extensible.ConfiguracionSimulacion;
+import DOO.DD.DD02.v002extensible.Simulacion;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Bucle de turnos en régimen estable: con -prof gc, gc.alloc.rate.norm debe ser 0 B/op
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TurnoSimulacionBenchmark {
+    @Param({"10x20", "200x200", "1000x1000"})
+    public String tamano;
+    
+    @Param({"false", "true"})
+    public boolean modoInteligente;
+    
+    private Simulacion simulacion;
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        simulacion = new Simulacion(new ConfiguracionSimulacion()
+                                    .conTamano(SalidaNula.filas(tamano), SalidaNula.columnas(tamano))
+                                    .inteligente(modoInteligente)
+                                    .conSemilla(42));
+        simulacion.setSilenciosa(true);
+        simulacion.inicializar();
+    }
+    
+    @Benchmark
+    public int ejecutarTurno() {
+        Aspiradora aspiradora = simulacion.getAspiradora();
+        if (aspiradora.getBateria() <= 1) {
+            aspiradora.cargarBateria();
+        }
+        if (aspiradora.getBasuraRecogida() >= aspiradora.getCapacidadBolsa() - 1) {
+            aspiradora.vaciarBolsa();
+        }
+        simulacion.ejecutarTurno();
+        return simulacion.getTurno();
+    }
+}
\ No newline at end of file
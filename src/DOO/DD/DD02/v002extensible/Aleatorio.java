@@ -0,0 +1,63 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+// Generador SplitMix64 sin sincronización. Cada componente de la simulación recibe su propio
+// flujo mediante dividir(), de modo que una misma semilla reproduce exactamente la misma ejecución.
+public final class Aleatorio implements RandomGenerator {
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+    
+    private long estado;
+    
+    public Aleatorio() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+    
+    public Aleatorio(long semilla) {
+        this.estado = semilla;
+    }
+    
+    // Crea un generador independiente cuyo flujo queda determinado por el estado actual
+    public Aleatorio dividir() {
+        return new Aleatorio(mezclar(nextLong()) ^ GAMMA);
+    }
+    
+    long getEstado() {
+        return estado;
+    }
+    
+    void setEstado(long estado) {
+        this.estado = estado;
+    }
+    
+    @Override
+    public long nextLong() {
+        return mezclar(estado += GAMMA);
+    }
+    
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+    
+    // Multiplicación y desplazamiento en lugar de módulo: sin divisiones en el camino caliente
+    @Override
+    public int nextInt(int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser positivo");
+        }
+        return (int) (((nextLong() >>> 32) * limite) >>> 32);
+    }
+    
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+    
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file
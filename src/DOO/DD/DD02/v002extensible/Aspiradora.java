@@ -1,22 +1,47 @@
 package DOO.DD.DD02.v002extensible;
 
-import java.util.Random;
+import java.nio.ByteBuffer;
 
 public class Aspiradora implements Entidad, VisitanteCelda {
+    public static final int BATERIA_MAXIMA = 100;
+    public static final int CAPACIDAD_BOLSA = 50;
+    private static final EstrategiaLimpieza ALEATORIA = new EstrategiaAleatoria();
+    
     private Posicion posicion;
     private int bateria;
+    private int bateriaMaxima;
     private int capacidadBolsa;
     private int basuraRecogida;
-    private Random random;
+    private Aleatorio random;
     private int pasos;
+    private int bateriaConsumida;
+    private int celdasLimpiadas;
+    private int movimientosBloqueados;
+    private PlanificadorRuta planificador;
+    private PlanificadorRecorrido recorrido;
+    private RegistroEventos eventos;
+    private Instrumentacion instrumentacion; // null si no se miden latencias
+    private Despacho despacho = Despacho.VISITANTE;
     
     public Aspiradora(int fila, int columna) {
+        this(fila, columna, new Aleatorio());
+    }
+    
+    public Aspiradora(int fila, int columna, Aleatorio random) {
+        this(fila, columna, random, BATERIA_MAXIMA, CAPACIDAD_BOLSA);
+    }
+    
+    public Aspiradora(int fila, int columna, Aleatorio random, int bateriaMaxima, int capacidadBolsa) {
         this.posicion = new Posicion(fila, columna);
-        this.bateria = 100;
-        this.capacidadBolsa = 50;
+        this.bateria = bateriaMaxima;
+        this.bateriaMaxima = bateriaMaxima;
+        this.capacidadBolsa = capacidadBolsa;
         this.basuraRecogida = 0;
-        this.random = new Random();
+        this.random = random;
         this.pasos = 0;
+        this.planificador = new PlanificadorRuta();
+        this.recorrido = new PlanificadorRecorrido(bateriaMaxima);
+        this.eventos = RegistroEventos.NULO;
     }
     
     @Override
@@ -28,6 +53,10 @@ public class Aspiradora implements Entidad, VisitanteCelda {
         return bateria;
     }
     
+    public int getBateriaMaxima() {
+        return bateriaMaxima;
+    }
+    
     public int getBasuraRecogida() {
         return basuraRecogida;
     }
@@ -40,105 +69,178 @@ public class Aspiradora implements Entidad, VisitanteCelda {
         return pasos;
     }
     
+    public int getBateriaConsumida() {
+        return bateriaConsumida;
+    }
+    
+    public int getCeldasLimpiadas() {
+        return celdasLimpiadas;
+    }
+    
+    // Intentos de movimiento sin batería, con la bolsa llena o sin ninguna celda accesible
+    public int getMovimientosBloqueados() {
+        return movimientosBloqueados;
+    }
+    
+    public void setRegistroEventos(RegistroEventos eventos) {
+        this.eventos = eventos;
+    }
+    
+    public void setInstrumentacion(Instrumentacion instrumentacion) {
+        this.instrumentacion = instrumentacion;
+    }
+    
+    public void setDespacho(Despacho despacho) {
+        this.despacho = despacho;
+    }
+    
     public void vaciarBolsa() {
         this.basuraRecogida = 0;
-        System.out.println("Bolsa de basura vaciada.");
+        eventos.publicar(TipoEvento.BOLSA_VACIADA, posicion.getFila(), posicion.getColumna(), 0, 0);
     }
     
     public void cargarBateria() {
-        this.bateria = 100;
-        System.out.println("Batería cargada al 100%.");
+        this.bateria = bateriaMaxima;
+        eventos.publicar(TipoEvento.BATERIA_CARGADA, posicion.getFila(), posicion.getColumna(), 0, 0);
     }
     
-    public void moverAleatorio(Mundo mundo) {
-        if (bateria <= 0) {
-            System.out.println("¡Sin batería! La aspiradora se ha detenido.");
-            return;
+    // Un turno automático: la estrategia elige la celda y la aspiradora avanza hasta ella
+    public boolean mover(Mundo mundo, EstrategiaLimpieza estrategia) {
+        if (!puedeMoverse(estrategia.admiteBolsaLlena())) {
+            return false;
         }
         
-        if (basuraRecogida >= capacidadBolsa) {
-            System.out.println("¡Bolsa llena! La aspiradora se ha detenido.");
-            return;
+        long inicio = instrumentacion != null && instrumentacion.midiendo() ? System.nanoTime() : 0;
+        int siguiente = estrategia.elegirPaso(mundo, this);
+        if (inicio != 0) {
+            instrumentacion.registrarPlanificacion(System.nanoTime() - inicio);
         }
         
-        for (int intentos = 0; intentos < 8; intentos++) {
-            int direccion = random.nextInt(8);
-            int nuevaFila = posicion.getFila();
-            int nuevaColumna = posicion.getColumna();
-            
-            switch (direccion) {
-                case 0: nuevaFila--; break;
-                case 1: nuevaFila--; nuevaColumna++; break;
-                case 2: nuevaColumna++; break;
-                case 3: nuevaFila++; nuevaColumna++; break;
-                case 4: nuevaFila++; break;
-                case 5: nuevaFila++; nuevaColumna--; break;
-                case 6: nuevaColumna--; break;
-                case 7: nuevaFila--; nuevaColumna--; break;
-            }
-            
-            if (mundo.posicionAccesible(nuevaFila, nuevaColumna)) {
-                posicion.setFila(nuevaFila);
-                posicion.setColumna(nuevaColumna);
-                bateria--;
-                pasos++;
-                
-                Celda celdaActual = mundo.getCelda(posicion.getFila(), posicion.getColumna());
-                boolean cambio = celdaActual.aceptar(this);
-                
-                if (cambio && celdaActual instanceof CeldaSucia) {
-                    mundo.setCelda(posicion.getFila(), posicion.getColumna(), 
-                                   new CeldaLimpia(posicion.getFila(), posicion.getColumna()));
-                }
-                
-                return;
-            }
+        if (siguiente >= 0) {
+            comprobarPaso(mundo, siguiente);
+            avanzarA(mundo, siguiente);
+            return true;
         }
-        
-        System.out.println("La aspiradora está atrapada y no puede moverse.");
+        // Sin ningún vecino accesible: atrapada de verdad, no por una decisión de la estrategia
+        if (mundo.estaAtrapada(posicion.getFila(), posicion.getColumna())) {
+            movimientosBloqueados++;
+            eventos.publicar(TipoEvento.ASPIRADORA_ATRAPADA, posicion.getFila(), posicion.getColumna(), 0, 0);
+        }
+        return false;
+    }
+    
+    public void moverAleatorio(Mundo mundo) {
+        mover(mundo, ALEATORIA);
     }
     
     public boolean moverHaciaObjetivo(Mundo mundo, Posicion objetivo) {
-        if (bateria <= 0) {
-            System.out.println("¡Sin batería! La aspiradora se ha detenido.");
+        if (!puedeMoverse(false)) {
             return false;
         }
         
-        if (basuraRecogida >= capacidadBolsa) {
-            System.out.println("¡Bolsa llena! La aspiradora se ha detenido.");
+        int siguiente = pasoHacia(mundo, objetivo.getFila(), objetivo.getColumna());
+        if (siguiente >= 0) {
+            avanzarA(mundo, siguiente);
+            return true;
+        } else {
+            moverAleatorio(mundo);
+            return false;
+        }
+    }
+    
+    private boolean puedeMoverse(boolean conBolsaLlena) {
+        if (bateria <= 0) {
+            movimientosBloqueados++;
+            eventos.publicar(TipoEvento.BATERIA_AGOTADA, posicion.getFila(), posicion.getColumna(), 0, 0);
             return false;
         }
         
-        int deltaFila = objetivo.getFila() - posicion.getFila();
-        int deltaColumna = objetivo.getColumna() - posicion.getColumna();
+        if (basuraRecogida >= capacidadBolsa && !conBolsaLlena) {
+            movimientosBloqueados++;
+            eventos.publicar(TipoEvento.BOLSA_LLENA, posicion.getFila(), posicion.getColumna(), 0, 0);
+            return false;
+        }
+        return true;
+    }
+    
+    // Una estrategia mal hecha no puede teletransportar la aspiradora ni meterla en un obstáculo
+    private void comprobarPaso(Mundo mundo, int indice) {
+        int fila = indice / mundo.columnas;
+        int columna = indice % mundo.columnas;
+        if (indice >= mundo.filas * mundo.columnas || Math.abs(fila - posicion.getFila()) > 1
+                || Math.abs(columna - posicion.getColumna()) > 1 || !mundo.esAccesible(indice)) {
+            throw new IllegalStateException("La estrategia eligió una celda que no es vecina accesible: ("
+                                            + fila + ", " + columna + ")");
+        }
+    }
+    
+    // Pasos que las estrategias pueden combinar; cada uno devuelve -1 si no hay paso posible
+    
+    public int pasoAlAzar(Mundo mundo) {
+        return mundo.vecinoAlAzar(posicion.getFila() * mundo.columnas + posicion.getColumna(), random);
+    }
+    
+    // Siguiente paso de la ruta A* hacia la celda; la ruta se reutiliza mientras siga valiendo
+    public int pasoHacia(Mundo mundo, int fila, int columna) {
+        return planificador.siguientePaso(mundo, posicion.getFila(), posicion.getColumna(), fila, columna);
+    }
+    
+    int pasoConRecorrido(Mundo mundo) {
+        return recorrido.siguientePaso(mundo, posicion.getFila(), posicion.getColumna(),
+                                       bateria, basuraRecogida, capacidadBolsa, planificador);
+    }
+    
+    void avanzarA(Mundo mundo, int indice) {
+        posicion.setFila(indice / mundo.columnas);
+        posicion.setColumna(indice % mundo.columnas);
+        bateria--;
+        bateriaConsumida++;
+        pasos++;
         
-        int dirFila = deltaFila == 0 ? 0 : (deltaFila > 0 ? 1 : -1);
-        int dirColumna = deltaColumna == 0 ? 0 : (deltaColumna > 0 ? 1 : -1);
+        actuarEnCeldaActual(mundo);
+    }
+    
+    void actuarEnCeldaActual(Mundo mundo) {
+        int fila = posicion.getFila();
+        int columna = posicion.getColumna();
+        if (despacho == Despacho.TIPO) {
+            actuarPorTipo(mundo, fila, columna);
+            return;
+        }
         
-        int nuevaFila = posicion.getFila() + dirFila;
-        int nuevaColumna = posicion.getColumna() + dirColumna;
+        Celda celdaActual = mundo.getCelda(fila, columna);
+        boolean cambio = celdaActual.aceptar(this);
         
-        if (mundo.posicionAccesible(nuevaFila, nuevaColumna)) {
-            posicion.setFila(nuevaFila);
-            posicion.setColumna(nuevaColumna);
-            bateria--;
-            pasos++;
-            
-            Celda celdaActual = mundo.getCelda(posicion.getFila(), posicion.getColumna());
-            boolean cambio = celdaActual.aceptar(this);
-            
-            if (cambio && celdaActual instanceof CeldaSucia) {
-                mundo.setCelda(posicion.getFila(), posicion.getColumna(), 
-                              new CeldaLimpia(posicion.getFila(), posicion.getColumna()));
-            }
-            
-            return true;
-        } else {
-            moverAleatorio(mundo);
-            return false;
+        if (cambio && celdaActual instanceof CeldaSucia) {
+            mundo.limpiar(fila, columna);
         }
     }
     
+    // Mismo efecto que el visitante, decidido con un switch sobre el código de la rejilla
+    private void actuarPorTipo(Mundo mundo, int fila, int columna) {
+        switch (Mundo.tipoDe(mundo.getCodigo(fila * mundo.columnas + columna))) {
+            case Mundo.TIPO_SUCIA:
+                if (basuraRecogida < capacidadBolsa) {
+                    int nivelAnterior = mundo.getDato(fila, columna);
+                    boolean limpiada = mundo.reducirSuciedad(fila, columna);
+                    basuraRecogida++;
+                    if (limpiada) {
+                        celdasLimpiadas++;
+                    }
+                    eventos.publicar(TipoEvento.CELDA_LIMPIADA, fila, columna, nivelAnterior,
+                                     limpiada ? 0 : nivelAnterior - 1);
+                }
+                break;
+            case Mundo.TIPO_CARGADOR:
+                cargarBateria();
+                break;
+            case Mundo.TIPO_VACIADO:
+                vaciarBolsa();
+                break;
+            default:
+                break; // Limpia u obstáculo: la celda no cambia
+        }
+    }
     
     @Override
     public boolean visitarCeldaLimpia(CeldaLimpia celda) {
@@ -147,13 +249,18 @@ public class Aspiradora implements Entidad, VisitanteCelda {
     
     @Override
     public boolean visitarCeldaSucia(CeldaSucia celda) {
+        if (basuraRecogida >= capacidadBolsa) {
+            return false; // Con la bolsa llena solo puede pasar por encima
+        }
         int nivelAnterior = celda.getNivelSuciedad();
         boolean limpiada = celda.reducirSuciedad();
         basuraRecogida++;
+        if (limpiada) {
+            celdasLimpiadas++;
+        }
         
-        System.out.printf("Limpiado celda [%d,%d]. Nivel anterior: %d, Nivel actual: %s%n", 
-                          celda.getFila(), celda.getColumna(), nivelAnterior,
-                          limpiada ? "limpio" : celda.getNivelSuciedad());
+        eventos.publicar(TipoEvento.CELDA_LIMPIADA, celda.getFila(), celda.getColumna(), nivelAnterior,
+                         limpiada ? 0 : celda.getNivelSuciedad());
         
         return limpiada; // Devuelve true si la celda se limpia completamente
     }
@@ -162,4 +269,54 @@ public class Aspiradora implements Entidad, VisitanteCelda {
     public boolean visitarCeldaObstaculo(CeldaObstaculo celda) {
         return false; // La celda no cambia
     }
+    
+    @Override
+    public boolean visitarCeldaCargador(CeldaCargador celda) {
+        cargarBateria();
+        return false; // La celda no cambia
+    }
+    
+    @Override
+    public boolean visitarCeldaVaciado(CeldaVaciado celda) {
+        vaciarBolsa();
+        return false; // La celda no cambia
+    }
+    
+    Aleatorio getAleatorio() {
+        return random;
+    }
+    
+    int bytesEstado() {
+        return 9 * 4 + 8 + planificador.bytesEstado() + recorrido.bytesEstado();
+    }
+    
+    void guardarEstado(ByteBuffer destino) {
+        destino.putInt(posicion.getFila());
+        destino.putInt(posicion.getColumna());
+        destino.putInt(bateria);
+        destino.putInt(capacidadBolsa);
+        destino.putInt(basuraRecogida);
+        destino.putInt(pasos);
+        destino.putInt(bateriaConsumida);
+        destino.putInt(celdasLimpiadas);
+        destino.putInt(movimientosBloqueados);
+        destino.putLong(random.getEstado());
+        planificador.guardarEstado(destino);
+        recorrido.guardarEstado(destino);
+    }
+    
+    void restaurarEstado(ByteBuffer origen) {
+        posicion.setFila(origen.getInt());
+        posicion.setColumna(origen.getInt());
+        bateria = origen.getInt();
+        capacidadBolsa = origen.getInt();
+        basuraRecogida = origen.getInt();
+        pasos = origen.getInt();
+        bateriaConsumida = origen.getInt();
+        celdasLimpiadas = origen.getInt();
+        movimientosBloqueados = origen.getInt();
+        random.setEstado(origen.getLong());
+        planificador.restaurarEstado(origen);
+        recorrido.restaurarEstado(origen);
+    }
 }
\ No newline at end of file
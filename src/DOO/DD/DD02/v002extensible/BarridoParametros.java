@@ -0,0 +1,370 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+// Barrido de ParametrosLimpieza: el producto cartesiano de los valores de cada eje o una muestra por
+// hipercubo latino (cada eje dividido en tantos estratos como muestras, uno por muestra). Cada punto
+// se ejecuta con las mismas semillas, así que todos los puntos comparten mundos de partida.
+//
+// Los puntos se reparten en un ForkJoinPool y cada uno se escribe como una fila del CSV en cuanto
+// termina, en el orden en que acaban. La primera línea del fichero (un comentario con '#') describe el
+// barrido: semilla, repeticiones, modo, ejes y configuración base. Si el fichero ya existe se reanuda:
+// se exige que esa línea coincida y que cada fila sea de este barrido, se descarta una última fila a
+// medio escribir y solo se ejecutan los puntos que faltan.
+//
+// Un punto que falla (por ejemplo, con tantos obstáculos que no queda sitio para la aspiradora) no
+// detiene el barrido: su fila lleva las métricas vacías y el error en la columna de estado, y cuenta
+// como hecho al reanudar.
+public class BarridoParametros {
+    
+    private static class Eje {
+        final ParametrosLimpieza.Parametro parametro;
+        final int minimo;
+        final int maximo;
+        final int valores;
+        
+        Eje(ParametrosLimpieza.Parametro parametro, int minimo, int maximo, int valores) {
+            this.parametro = parametro;
+            this.minimo = minimo;
+            this.maximo = maximo;
+            this.valores = valores;
+        }
+        
+        // k-ésimo de los valores repartidos por igual entre mínimo y máximo
+        int valor(int k) {
+            return valores == 1 ? minimo : minimo + (int) ((long) (maximo - minimo) * k / (valores - 1));
+        }
+    }
+    
+    private final ConfiguracionSimulacion base;
+    private final List<Eje> ejes = new ArrayList<>();
+    private final ForkJoinPool pool;
+    private int repeticiones = 1;
+    private long semilla = 42;
+    private int muestras;          // 0 para el producto cartesiano
+    private int[][] hipercubo;     // [eje][muestra], solo con hipercubo latino
+    
+    public BarridoParametros(ConfiguracionSimulacion base) {
+        this(base, ForkJoinPool.commonPool());
+    }
+    
+    public BarridoParametros(ConfiguracionSimulacion base, ForkJoinPool pool) {
+        this.base = base.copiar();
+        this.pool = pool;
+    }
+    
+    // En el producto cartesiano el eje toma 'valores' puntos equiespaciados; en el hipercubo latino
+    // solo cuentan mínimo y máximo
+    public BarridoParametros conEje(ParametrosLimpieza.Parametro parametro, int minimo, int maximo, int valores) {
+        if (minimo > maximo || valores < 1) {
+            throw new IllegalArgumentException("Eje no válido para " + parametro.getColumna());
+        }
+        // Los límites de cada parámetro son intervalos: basta con probar los extremos
+        parametro.escribir(new ParametrosLimpieza(), minimo);
+        parametro.escribir(new ParametrosLimpieza(), maximo);
+        for (Eje eje : ejes) {
+            if (eje.parametro == parametro) {
+                throw new IllegalArgumentException("Eje repetido: " + parametro.getColumna());
+            }
+        }
+        ejes.add(new Eje(parametro, minimo, maximo, valores));
+        hipercubo = null;
+        return this;
+    }
+    
+    public BarridoParametros conRepeticiones(int repeticiones) {
+        this.repeticiones = repeticiones;
+        return this;
+    }
+    
+    public BarridoParametros conSemilla(long semilla) {
+        this.semilla = semilla;
+        hipercubo = null;
+        return this;
+    }
+    
+    public BarridoParametros productoCartesiano() {
+        this.muestras = 0;
+        hipercubo = null;
+        return this;
+    }
+    
+    public BarridoParametros hipercuboLatino(int muestras) {
+        if (muestras < 1) {
+            throw new IllegalArgumentException("Hacen falta muestras: " + muestras);
+        }
+        this.muestras = muestras;
+        hipercubo = null;
+        return this;
+    }
+    
+    public int contarPuntos() {
+        if (muestras > 0) {
+            return muestras;
+        }
+        long puntos = 1;
+        for (Eje eje : ejes) {
+            puntos *= eje.valores;
+            if (puntos > Integer.MAX_VALUE) {
+                throw new IllegalStateException("El producto cartesiano tiene demasiados puntos");
+            }
+        }
+        return (int) puntos;
+    }
+    
+    public ParametrosLimpieza punto(int indice) {
+        ParametrosLimpieza parametros = base.getParametros().copiar();
+        if (muestras > 0) {
+            prepararHipercubo();
+            for (int e = 0; e < ejes.size(); e++) {
+                ejes.get(e).parametro.escribir(parametros, hipercubo[e][indice]);
+            }
+            return parametros;
+        }
+        // Índice en base mixta: el último eje es el que cambia más deprisa
+        int resto = indice;
+        for (int e = ejes.size() - 1; e >= 0; e--) {
+            Eje eje = ejes.get(e);
+            eje.parametro.escribir(parametros, eje.valor(resto % eje.valores));
+            resto /= eje.valores;
+        }
+        return parametros;
+    }
+    
+    private void prepararHipercubo() {
+        if (hipercubo != null) {
+            return;
+        }
+        Aleatorio random = new Aleatorio(semilla);
+        int[][] valores = new int[ejes.size()][muestras];
+        for (int e = 0; e < ejes.size(); e++) {
+            Eje eje = ejes.get(e);
+            long ancho = (long) eje.maximo - eje.minimo + 1;
+            int[] estratos = valores[e];
+            for (int i = 0; i < muestras; i++) {
+                estratos[i] = i;
+            }
+            for (int i = muestras - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = estratos[i];
+                estratos[i] = estratos[j];
+                estratos[j] = t;
+            }
+            // Con más muestras que valores enteros varios estratos caen en el mismo valor
+            for (int i = 0; i < muestras; i++) {
+                long desde = ancho * estratos[i] / muestras;
+                long hasta = ancho * (estratos[i] + 1) / muestras;
+                long desplazamiento = hasta > desde ? desde + random.nextInt((int) (hasta - desde)) : desde;
+                estratos[i] = (int) (eje.minimo + Math.min(desplazamiento, ancho - 1));
+            }
+        }
+        hipercubo = valores;
+    }
+    
+    // Ejecuta los puntos que falten en el fichero; devuelve cuántos se han ejecutado ahora
+    public int ejecutar(Path fichero) throws IOException {
+        int puntos = contarPuntos();
+        if (muestras > 0) {
+            prepararHipercubo(); // Antes de repartir: los hilos solo leen la muestra
+        }
+        boolean[] hechos = new boolean[puntos];
+        int pendientes = puntos - reanudar(fichero, hechos);
+        boolean nuevo = !Files.exists(fichero) || Files.size(fichero) == 0;
+        if (pendientes == 0) {
+            return 0;
+        }
+        
+        int[] indices = new int[pendientes];
+        for (int i = 0, n = 0; i < puntos; i++) {
+            if (!hechos[i]) {
+                indices[n++] = i;
+            }
+        }
+        long[] semillas = new long[repeticiones];
+        Aleatorio generadorSemillas = new Aleatorio(semilla);
+        for (int r = 0; r < repeticiones; r++) {
+            semillas[r] = generadorSemillas.nextLong();
+        }
+        
+        try (BufferedWriter salida = Files.newBufferedWriter(fichero, StandardCharsets.US_ASCII,
+                                                             StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (nuevo) {
+                salida.write(metadatos());
+                salida.write('\n');
+                salida.write(cabecera());
+                salida.write('\n');
+            }
+            pool.invoke(new TareaFranjas(k -> {
+                String fila = ejecutarPunto(indices[k], semillas);
+                synchronized (salida) {
+                    try {
+                        salida.write(fila);
+                        salida.write('\n');
+                        salida.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }, 0, pendientes));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return pendientes;
+    }
+    
+    private String ejecutarPunto(int indice, long[] semillas) {
+        ParametrosLimpieza parametros = punto(indice);
+        long inicio = System.nanoTime();
+        int limpias = 0;
+        long pasos = 0;
+        long bateria = 0;
+        long suciedad = 0;
+        int n = semillas.length;
+        try {
+            for (long semillaEjecucion : semillas) {
+                ResultadoSimulacion resultado = EjecutorDesatendido.ejecutar(base.copiar()
+                                                                             .conParametros(parametros)
+                                                                             .conSemilla(semillaEjecucion));
+                if (resultado.getMotivoFin() == MotivoFin.LIMPIO) {
+                    limpias++;
+                }
+                pasos += resultado.getPasos();
+                bateria += resultado.getBateriaConsumida();
+                suciedad += resultado.getSuciedadRestante();
+            }
+        } catch (RuntimeException e) {
+            // Sin comas ni saltos de línea, para no romper el CSV
+            String error = (e.getClass().getSimpleName() + ": " + e.getMessage()).replaceAll("[,\\r\\n]", " ");
+            return String.format(Locale.ROOT, "%d,%s,%d,,,,,%.3f,error: %s",
+                                 indice, valores(parametros), n, (System.nanoTime() - inicio) / 1e6, error);
+        }
+        return String.format(Locale.ROOT, "%d,%s,%d,%d,%.2f,%.2f,%.2f,%.3f,ok",
+                             indice, valores(parametros), n, limpias, (double) pasos / n, (double) bateria / n,
+                             (double) suciedad / n, (System.nanoTime() - inicio) / 1e6);
+    }
+    
+    // Todo lo que cambia las filas sin que se note en los parámetros de cada punto
+    private String metadatos() {
+        StringBuilder texto = new StringBuilder("# barrido semilla=").append(semilla)
+            .append(" repeticiones=").append(repeticiones)
+            .append(" modo=").append(muestras > 0 ? "hipercubo:" + muestras : "cartesiano")
+            .append(" ejes=");
+        for (int e = 0; e < ejes.size(); e++) {
+            Eje eje = ejes.get(e);
+            texto.append(e > 0 ? ";" : "").append(eje.parametro.getColumna()).append(':').append(eje.minimo)
+                .append(':').append(eje.maximo).append(':').append(eje.valores);
+        }
+        return texto.append(" tamano=").append(base.getFilas()).append('x').append(base.getColumnas())
+            .append(" inteligente=").append(base.isModoInteligente())
+            .append(" bloques=").append(base.isMundoPorBloques())
+            .append(" cercania=").append(base.isPorCercania())
+            .append(" recorrido=").append(base.isConRecorrido())
+            .append(" estaciones=").append(base.getCargadores()).append('+').append(base.getVaciados())
+            .append(" turnos=").append(base.getMaxTurnos())
+            .append(" despacho=").append(base.getDespacho())
+            .append(" jerarquicas=").append(base.isRutasJerarquicas())
+            .append(" estrategia=").append(base.getEstrategia() == null ? "modos" : "propia")
+            .append(" base=").append(valores(base.getParametros()).replace(',', ':'))
+            .toString();
+    }
+    
+    private static String cabecera() {
+        StringBuilder texto = new StringBuilder("indice");
+        for (ParametrosLimpieza.Parametro parametro : ParametrosLimpieza.Parametro.values()) {
+            texto.append(',').append(parametro.getColumna());
+        }
+        return texto.append(",ejecuciones,limpias,pasos_medios,bateria_media,suciedad_media,milisegundos,estado")
+            .toString();
+    }
+    
+    // Todos los parámetros, en el orden de la cabecera
+    private static String valores(ParametrosLimpieza parametros) {
+        StringBuilder texto = new StringBuilder();
+        for (ParametrosLimpieza.Parametro parametro : ParametrosLimpieza.Parametro.values()) {
+            if (texto.length() > 0) {
+                texto.append(',');
+            }
+            texto.append(parametro.leer(parametros));
+        }
+        return texto.toString();
+    }
+    
+    // Marca los puntos ya escritos y recorta la última línea si quedó a medias; devuelve cuántos hay
+    private int reanudar(Path fichero, boolean[] hechos) throws IOException {
+        if (!Files.exists(fichero) || Files.size(fichero) == 0) {
+            return 0;
+        }
+        String contenido = new String(Files.readAllBytes(fichero), StandardCharsets.US_ASCII);
+        int completo = contenido.lastIndexOf('\n') + 1;
+        if (completo < contenido.length()) {
+            try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+                canal.truncate(completo);
+            }
+        }
+        if (completo == 0) {
+            return 0;
+        }
+        String[] lineas = contenido.substring(0, completo).split("\n");
+        if (!lineas[0].startsWith("# barrido ") || lineas.length > 1 && !lineas[1].equals(cabecera())) {
+            throw new IOException("El fichero no es un barrido de parámetros: " + fichero);
+        }
+        if (!lineas[0].equals(metadatos())) {
+            throw new IOException("El fichero es de otro barrido (semilla, repeticiones, ejes o configuración): "
+                                  + lineas[0]);
+        }
+        if (lineas.length == 1) {
+            // Se cortó antes de escribir la cabecera: se empieza de nuevo
+            try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+                canal.truncate(0);
+            }
+            return 0;
+        }
+        int cuantos = 0;
+        for (int i = 2; i < lineas.length; i++) {
+            int indice = Integer.parseInt(lineas[i].split(",", 2)[0]);
+            String esperado = indice >= 0 && indice < hechos.length ? valores(punto(indice)) : null;
+            if (!lineas[i].startsWith(indice + "," + esperado + ",")) {
+                throw new IOException("La fila " + i + " no corresponde a este barrido: " + fichero);
+            }
+            if (!hechos[indice]) {
+                hechos[indice] = true;
+                cuantos++;
+            }
+        }
+        return cuantos;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path fichero = Path.of(args.length > 0 ? args[0] : "barrido.csv");
+        int muestras = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        
+        BarridoParametros barrido = new BarridoParametros(new ConfiguracionSimulacion()
+                                                          .conTamano(20, 40)
+                                                          .inteligente(true))
+            .conRepeticiones(8)
+            .conEje(ParametrosLimpieza.Parametro.BATERIA, 50, 400, 8)
+            .conEje(ParametrosLimpieza.Parametro.BOLSA, 25, 200, 8)
+            .conEje(ParametrosLimpieza.Parametro.PROBABILIDAD_GATO, 0, 30, 4)
+            .conEje(ParametrosLimpieza.Parametro.OBSTACULOS, 0, 20, 5)
+            .conEje(ParametrosLimpieza.Parametro.SUCIEDAD, 10, 50, 5);
+        if (muestras > 0) {
+            barrido.hipercuboLatino(muestras);
+        }
+        
+        long inicio = System.nanoTime();
+        int ejecutados = barrido.ejecutar(fichero);
+        System.out.printf("%d puntos ejecutados (%d en total) en %.2f s -> %s%n", ejecutados,
+                          barrido.contarPuntos(), (System.nanoTime() - inicio) / 1e9, fichero);
+    }
+}
\ No newline at end of file
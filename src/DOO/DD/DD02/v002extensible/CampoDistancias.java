@@ -0,0 +1,252 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.Arrays;
+
+// Campo de distancias a la celda sucia más cercana (BFS multiorigen sobre las celdas accesibles,
+// vecindad de 8 direcciones). Mundo lo avisa cada vez que una celda pasa de limpia a sucia o al
+// revés y el campo se corrige localmente:
+//   - al ensuciarse una celda, las distancias solo pueden bajar: se propaga un BFS desde ella;
+//   - al limpiarse, se buscan las celdas que se quedan sin un vecino a distancia d - 1, se
+//     invalidan y se recalculan desde su frontera en orden creciente de distancia.
+// Si cambian los obstáculos se reconstruye entero en la siguiente consulta. Los campos de
+// estaciones (cargadores, vaciado) no reciben avisos: se reconstruyen cuando cambian las estaciones.
+public class CampoDistancias {
+    public static final int INALCANZABLE = Integer.MAX_VALUE;
+    
+    private final Mundo mundo;
+    private final int tipoOrigen;
+    private final int filas;
+    private final int columnas;
+    private final int[] distancia;
+    private final int[] marca;  // Generación en la que la celda quedó invalidada
+    private final int[] cola;
+    private long[] frontera = new long[64];
+    private int generacion;
+    private int version;
+    private boolean valido;
+    private int reconstrucciones;
+    
+    CampoDistancias(Mundo mundo, int tipoOrigen) {
+        this.mundo = mundo;
+        this.tipoOrigen = tipoOrigen;
+        this.filas = mundo.filas;
+        this.columnas = mundo.columnas;
+        int total = filas * columnas;
+        this.distancia = new int[total];
+        this.marca = new int[total];
+        this.cola = new int[total];
+    }
+    
+    public int getDistancia(int fila, int columna) {
+        asegurarValido();
+        return distancia[fila * columnas + columna];
+    }
+    
+    public int getReconstrucciones() {
+        return reconstrucciones;
+    }
+    
+    // Vecino accesible más cercano a la suciedad, o -1 si no queda suciedad alcanzable. Sobre una
+    // celda que sigue sucia devuelve la propia celda: quedarse a aspirar es más corto que salir y volver
+    public int siguientePaso(int fila, int columna) {
+        asegurarValido();
+        int actual = fila * columnas + columna;
+        if (tipoOrigen == Mundo.TIPO_SUCIA && distancia[actual] == 0) {
+            return actual;
+        }
+        int mejor = -1;
+        int mejorDistancia = INALCANZABLE;
+        for (int d = 0; d < 8; d++) {
+            int f = fila + Posicion.DESPLAZAMIENTO_FILA[d];
+            int c = columna + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+            if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                continue;
+            }
+            int vecino = f * columnas + c;
+            if (distancia[vecino] < mejorDistancia && mundo.esAccesible(vecino)) {
+                mejor = vecino;
+                mejorDistancia = distancia[vecino];
+            }
+        }
+        return mejor;
+    }
+    
+    void invalidar() {
+        valido = false;
+    }
+    
+    void suciedadAnadida(int indice) {
+        if (!valido || distancia[indice] == 0) {
+            return;
+        }
+        distancia[indice] = 0;
+        cola[0] = indice;
+        propagar(0, 1);
+    }
+    
+    void suciedadEliminada(int indice) {
+        if (!valido) {
+            return;
+        }
+        generacion++;
+        
+        // Fase 1: celdas cuya distancia dependía de la suciedad eliminada. Se recorren por niveles,
+        // así que al revisar una celda de nivel d + 1 ya están marcadas todas las de nivel d.
+        marca[indice] = generacion;
+        cola[0] = indice;
+        int afectadas = 1;
+        for (int cabeza = 0; cabeza < afectadas; cabeza++) {
+            int u = cola[cabeza];
+            int siguienteNivel = distancia[u] + 1;
+            int fu = u / columnas;
+            int cu = u % columnas;
+            for (int d = 0; d < 8; d++) {
+                int f = fu + Posicion.DESPLAZAMIENTO_FILA[d];
+                int c = cu + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+                if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                    continue;
+                }
+                int w = f * columnas + c;
+                if (distancia[w] == siguienteNivel && marca[w] != generacion
+                        && mundo.esAccesible(w) && !tieneSoporte(w)) {
+                    marca[w] = generacion;
+                    cola[afectadas++] = w;
+                }
+            }
+        }
+        
+        // Fase 2: cada celda invalidada toma la mejor distancia que le ofrece la parte intacta
+        int tamanoFrontera = 0;
+        for (int k = 0; k < afectadas; k++) {
+            distancia[cola[k]] = INALCANZABLE;
+        }
+        for (int k = 0; k < afectadas; k++) {
+            int u = cola[k];
+            int mejor = mejorVecinoIntacto(u);
+            if (mejor != INALCANZABLE) {
+                distancia[u] = mejor + 1;
+                if (tamanoFrontera == frontera.length) {
+                    frontera = Arrays.copyOf(frontera, tamanoFrontera * 2);
+                }
+                frontera[tamanoFrontera++] = ((long) (mejor + 1) << 32) | u;
+            }
+        }
+        Arrays.sort(frontera, 0, tamanoFrontera);
+        
+        // Fase 3: Dijkstra de coste unitario mezclando la frontera ordenada con una cola FIFO
+        int cabeza = 0;
+        int fin = 0;
+        int siguienteFrontera = 0;
+        while (siguienteFrontera < tamanoFrontera || cabeza < fin) {
+            int u;
+            if (cabeza == fin || (siguienteFrontera < tamanoFrontera
+                    && (int) (frontera[siguienteFrontera] >>> 32) <= distancia[cola[cabeza]])) {
+                long entrada = frontera[siguienteFrontera++];
+                u = (int) entrada;
+                if (distancia[u] != (int) (entrada >>> 32)) {
+                    continue; // Ya mejorada desde otra celda
+                }
+            } else {
+                u = cola[cabeza++];
+            }
+            fin = relajarVecinos(u, fin);
+        }
+    }
+    
+    private void asegurarValido() {
+        if (valido && version == versionMundo()) {
+            return;
+        }
+        Arrays.fill(distancia, INALCANZABLE);
+        int fuentes = 0;
+        for (int i = 0; i < distancia.length; i++) {
+            if (Mundo.tipoDe(mundo.getCodigo(i)) == tipoOrigen) {
+                distancia[i] = 0;
+                cola[fuentes++] = i;
+            }
+        }
+        propagar(0, fuentes);
+        version = versionMundo();
+        valido = true;
+        reconstrucciones++;
+    }
+    
+    private int versionMundo() {
+        return tipoOrigen == Mundo.TIPO_SUCIA ? mundo.getVersionObstaculos() : mundo.getVersionEstaciones();
+    }
+    
+    // Celda origen más cercana desde (fila, columna) bajando por el campo, o -1 si no hay ninguna
+    public int origenMasCercano(int fila, int columna) {
+        asegurarValido();
+        int actual = fila * columnas + columna;
+        if (distancia[actual] == INALCANZABLE) {
+            return -1;
+        }
+        while (distancia[actual] > 0) {
+            actual = siguientePaso(actual / columnas, actual % columnas);
+        }
+        return actual;
+    }
+    
+    // BFS a partir de cola[cabeza..fin), cuyas distancias ya son correctas
+    private void propagar(int cabeza, int fin) {
+        while (cabeza < fin) {
+            fin = relajarVecinos(cola[cabeza++], fin);
+        }
+    }
+    
+    private int relajarVecinos(int u, int fin) {
+        int candidata = distancia[u] + 1;
+        int fu = u / columnas;
+        int cu = u % columnas;
+        for (int d = 0; d < 8; d++) {
+            int f = fu + Posicion.DESPLAZAMIENTO_FILA[d];
+            int c = cu + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+            if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                continue;
+            }
+            int w = f * columnas + c;
+            if (distancia[w] > candidata && mundo.esAccesible(w)) {
+                distancia[w] = candidata;
+                cola[fin++] = w;
+            }
+        }
+        return fin;
+    }
+    
+    private boolean tieneSoporte(int w) {
+        int anterior = distancia[w] - 1;
+        int fw = w / columnas;
+        int cw = w % columnas;
+        for (int d = 0; d < 8; d++) {
+            int f = fw + Posicion.DESPLAZAMIENTO_FILA[d];
+            int c = cw + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+            if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                continue;
+            }
+            int x = f * columnas + c;
+            if (distancia[x] == anterior && marca[x] != generacion && mundo.esAccesible(x)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private int mejorVecinoIntacto(int u) {
+        int mejor = INALCANZABLE;
+        int fu = u / columnas;
+        int cu = u % columnas;
+        for (int d = 0; d < 8; d++) {
+            int f = fu + Posicion.DESPLAZAMIENTO_FILA[d];
+            int c = cu + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+            if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                continue;
+            }
+            int x = f * columnas + c;
+            if (marca[x] != generacion && distancia[x] < mejor && mundo.esAccesible(x)) {
+                mejor = distancia[x];
+            }
+        }
+        return mejor;
+    }
+}
\ No newline at end of file
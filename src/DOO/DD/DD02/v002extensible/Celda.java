@@ -1,14 +1,26 @@
 package DOO.DD.DD02.v002extensible;
 
-public abstract class Celda {
+// Jerarquía cerrada: los cinco tipos de celda coinciden con los códigos de tipo de la rejilla
+public abstract sealed class Celda permits CeldaLimpia, CeldaSucia, CeldaObstaculo, CeldaCargador, CeldaVaciado {
     protected int fila;
     protected int columna;
+    // Mundo al que está ligada la celda cuando actúa como vista ligera; null si es independiente
+    Mundo mundo;
     
     public Celda(int fila, int columna) {
         this.fila = fila;
         this.columna = columna;
     }
     
+    Celda(Mundo mundo) {
+        this.mundo = mundo;
+    }
+    
+    void ubicar(int fila, int columna) {
+        this.fila = fila;
+        this.columna = columna;
+    }
+    
     public int getFila() {
         return fila;
     }
@@ -20,4 +32,6 @@ public abstract class Celda {
     public abstract String representacion();
     
     public abstract boolean aceptar(VisitanteCelda visitante);
+    
+    abstract byte codificar();
 }
\ No newline at end of file
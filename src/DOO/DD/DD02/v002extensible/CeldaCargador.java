@@ -0,0 +1,27 @@
+package DOO.DD.DD02.v002extensible;
+
+public final class CeldaCargador extends Celda {
+    
+    public CeldaCargador(int fila, int columna) {
+        super(fila, columna);
+    }
+    
+    CeldaCargador(Mundo mundo) {
+        super(mundo);
+    }
+    
+    @Override
+    public String representacion() {
+        return "[+]";
+    }
+    
+    @Override
+    public boolean aceptar(VisitanteCelda visitante) {
+        return visitante.visitarCeldaCargador(this);
+    }
+    
+    @Override
+    byte codificar() {
+        return Mundo.codificar(Mundo.TIPO_CARGADOR, 0);
+    }
+}
\ No newline at end of file
@@ -1,11 +1,15 @@
 package DOO.DD.DD02.v002extensible;
 
-public class CeldaLimpia extends Celda {
+public final class CeldaLimpia extends Celda {
     
     public CeldaLimpia(int fila, int columna) {
         super(fila, columna);
     }
     
+    CeldaLimpia(Mundo mundo) {
+        super(mundo);
+    }
+    
     @Override
     public String representacion() {
         return " . ";
@@ -15,4 +19,9 @@ public class CeldaLimpia extends Celda {
     public boolean aceptar(VisitanteCelda visitante) {
         return visitante.visitarCeldaLimpia(this);
     }
+    
+    @Override
+    byte codificar() {
+        return Mundo.codificar(Mundo.TIPO_LIMPIA, 0);
+    }
 }
\ No newline at end of file
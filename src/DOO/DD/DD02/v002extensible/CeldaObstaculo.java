@@ -1,6 +1,6 @@
 package DOO.DD.DD02.v002extensible;
 
-public class CeldaObstaculo extends Celda {
+public final class CeldaObstaculo extends Celda {
     private String tipo;
     
     public CeldaObstaculo(int fila, int columna, String tipo) {
@@ -8,12 +8,20 @@ public class CeldaObstaculo extends Celda {
         this.tipo = tipo;
     }
     
+    CeldaObstaculo(Mundo mundo) {
+        super(mundo);
+    }
+    
     public String getTipo() {
+        if (mundo != null) {
+            return Mundo.nombreObstaculo(mundo.getDato(fila, columna));
+        }
         return tipo;
     }
     
     @Override
     public String representacion() {
+        String tipo = getTipo();
         if ("sofa".equals(tipo)) {
             return "[##]";
         } else if ("pared".equals(tipo)) {
@@ -27,4 +35,9 @@ public class CeldaObstaculo extends Celda {
     public boolean aceptar(VisitanteCelda visitante) {
         return visitante.visitarCeldaObstaculo(this);
     }
+    
+    @Override
+    byte codificar() {
+        return Mundo.codificar(Mundo.TIPO_OBSTACULO, Mundo.codigoObstaculo(getTipo()));
+    }
 }
\ No newline at end of file
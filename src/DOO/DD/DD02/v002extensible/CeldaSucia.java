@@ -1,6 +1,6 @@
 package DOO.DD.DD02.v002extensible;
 
-public class CeldaSucia extends Celda {
+public final class CeldaSucia extends Celda {
     private int nivelSuciedad;
     
     public CeldaSucia(int fila, int columna, int nivelSuciedad) {
@@ -8,22 +8,36 @@ public class CeldaSucia extends Celda {
         this.nivelSuciedad = Math.min(4, Math.max(1, nivelSuciedad)); // Limitado entre 1 y 4
     }
     
+    CeldaSucia(Mundo mundo) {
+        super(mundo);
+    }
+    
     public int getNivelSuciedad() {
+        if (mundo != null) {
+            return mundo.getDato(fila, columna);
+        }
         return nivelSuciedad;
     }
     
     public boolean reducirSuciedad() {
+        if (mundo != null) {
+            return mundo.reducirSuciedad(fila, columna);
+        }
         nivelSuciedad--;
         return nivelSuciedad <= 0;
     }
     
     public void aumentarSuciedad() {
+        if (mundo != null) {
+            mundo.aumentarSuciedad(fila, columna);
+            return;
+        }
         nivelSuciedad = Math.min(4, nivelSuciedad + 1);
     }
     
     @Override
     public String representacion() {
-        switch (nivelSuciedad) {
+        switch (getNivelSuciedad()) {
             case 1: return "...";
             case 2: return "ooo";
             case 3: return "OOO";
@@ -36,4 +50,13 @@ public class CeldaSucia extends Celda {
     public boolean aceptar(VisitanteCelda visitante) {
         return visitante.visitarCeldaSucia(this);
     }
+    
+    @Override
+    byte codificar() {
+        int nivel = getNivelSuciedad();
+        if (nivel <= 0) {
+            return Mundo.codificar(Mundo.TIPO_LIMPIA, 0);
+        }
+        return Mundo.codificar(Mundo.TIPO_SUCIA, nivel);
+    }
 }
\ No newline at end of file
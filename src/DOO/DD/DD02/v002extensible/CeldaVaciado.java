@@ -0,0 +1,27 @@
+package DOO.DD.DD02.v002extensible;
+
+public final class CeldaVaciado extends Celda {
+    
+    public CeldaVaciado(int fila, int columna) {
+        super(fila, columna);
+    }
+    
+    CeldaVaciado(Mundo mundo) {
+        super(mundo);
+    }
+    
+    @Override
+    public String representacion() {
+        return "[V]";
+    }
+    
+    @Override
+    public boolean aceptar(VisitanteCelda visitante) {
+        return visitante.visitarCeldaVaciado(this);
+    }
+    
+    @Override
+    byte codificar() {
+        return Mundo.codificar(Mundo.TIPO_VACIADO, 0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+public class ConfiguracionSimulacion {
+    private int filas = 10;
+    private int columnas = 20;
+    private ParametrosLimpieza parametros = new ParametrosLimpieza();
+    private boolean modoInteligente = false;
+    private long semilla = new Random().nextLong();
+    private int maxTurnos = 10000;
+    private Verbosidad verbosidad = Verbosidad.NINGUNA;
+    private boolean mundoPorBloques = false;
+    private boolean porCercania = false;
+    private boolean conRecorrido = false;
+    private int cargadores = 0;
+    private int vaciados = 0;
+    private Despacho despacho = Despacho.VISITANTE;
+    private boolean rutasJerarquicas = false;
+    private Supplier<? extends EstrategiaLimpieza> estrategia; // null: la que indiquen los modos
+    
+    public ConfiguracionSimulacion conTamano(int filas, int columnas) {
+        this.filas = filas;
+        this.columnas = columnas;
+        return this;
+    }
+    
+    public ConfiguracionSimulacion conObstaculos(int porcentajeObstaculos) {
+        parametros.conObstaculos(porcentajeObstaculos);
+        return this;
+    }
+    
+    public ConfiguracionSimulacion conSuciedad(int porcentajeSuciedad) {
+        parametros.conSuciedad(porcentajeSuciedad);
+        return this;
+    }
+    
+    // Sustituye de una vez batería, bolsa, gato, obstáculos y suciedad; guarda una copia
+    public ConfiguracionSimulacion conParametros(ParametrosLimpieza parametros) {
+        this.parametros = parametros.copiar();
+        return this;
+    }
+    
+    public ConfiguracionSimulacion inteligente(boolean modoInteligente) {
+        this.modoInteligente = modoInteligente;
+        return this;
+    }
+    
+    public ConfiguracionSimulacion conSemilla(long semilla) {
+        this.semilla = semilla;
+        return this;
+    }
+    
+    public ConfiguracionSimulacion conMaxTurnos(int maxTurnos) {
+        this.maxTurnos = maxTurnos;
+        return this;
+    }
+    
+    public ConfiguracionSimulacion conVerbosidad(Verbosidad verbosidad) {
+        this.verbosidad = verbosidad;
+        return this;
+    }
+    
+    public ConfiguracionSimulacion porBloques(boolean mundoPorBloques) {
+        this.mundoPorBloques = mundoPorBloques;
+        return this;
+    }
+    
+    // El modo inteligente va a la suciedad más cercana (campo de distancias) en vez de a la más sucia
+    public ConfiguracionSimulacion porCercania(boolean porCercania) {
+        this.porCercania = porCercania;
+        return this;
+    }
+    
+    // El modo inteligente planifica un recorrido con desvíos a las estaciones de carga y vaciado
+    public ConfiguracionSimulacion conRecorrido(boolean conRecorrido) {
+        this.conRecorrido = conRecorrido;
+        return this;
+    }
+    
+    public ConfiguracionSimulacion conEstaciones(int cargadores, int vaciados) {
+        this.cargadores = cargadores;
+        this.vaciados = vaciados;
+        return this;
+    }
+    
+    public ConfiguracionSimulacion conDespacho(Despacho despacho) {
+        this.despacho = despacho;
+        return this;
+    }
+    
+    // Las rutas de A* se buscan sobre el grafo jerárquico de clusters (planos grandes con habitaciones)
+    public ConfiguracionSimulacion conRutasJerarquicas(boolean rutasJerarquicas) {
+        this.rutasJerarquicas = rutasJerarquicas;
+        return this;
+    }
+    
+    // Cada simulación pide su propia instancia, así que la estrategia puede guardar estado
+    public ConfiguracionSimulacion conEstrategia(Supplier<? extends EstrategiaLimpieza> estrategia) {
+        this.estrategia = estrategia;
+        return this;
+    }
+    
+    public ConfiguracionSimulacion copiar() {
+        return new ConfiguracionSimulacion()
+            .conTamano(filas, columnas)
+            .conParametros(parametros)
+            .inteligente(modoInteligente)
+            .conSemilla(semilla)
+            .conMaxTurnos(maxTurnos)
+            .conVerbosidad(verbosidad)
+            .porBloques(mundoPorBloques)
+            .porCercania(porCercania)
+            .conRecorrido(conRecorrido)
+            .conEstaciones(cargadores, vaciados)
+            .conDespacho(despacho)
+            .conRutasJerarquicas(rutasJerarquicas)
+            .conEstrategia(estrategia);
+    }
+    
+    public int getFilas() {
+        return filas;
+    }
+    
+    public int getColumnas() {
+        return columnas;
+    }
+    
+    public ParametrosLimpieza getParametros() {
+        return parametros;
+    }
+    
+    public int getPorcentajeObstaculos() {
+        return parametros.getPorcentajeObstaculos();
+    }
+    
+    public int getPorcentajeSuciedad() {
+        return parametros.getPorcentajeSuciedad();
+    }
+    
+    public boolean isModoInteligente() {
+        return modoInteligente;
+    }
+    
+    public long getSemilla() {
+        return semilla;
+    }
+    
+    public int getMaxTurnos() {
+        return maxTurnos;
+    }
+    
+    public Verbosidad getVerbosidad() {
+        return verbosidad;
+    }
+    
+    public boolean isMundoPorBloques() {
+        return mundoPorBloques;
+    }
+    
+    public boolean isPorCercania() {
+        return porCercania;
+    }
+    
+    public boolean isConRecorrido() {
+        return conRecorrido;
+    }
+    
+    public int getCargadores() {
+        return cargadores;
+    }
+    
+    public int getVaciados() {
+        return vaciados;
+    }
+    
+    public Despacho getDespacho() {
+        return despacho;
+    }
+    
+    public boolean isRutasJerarquicas() {
+        return rutasJerarquicas;
+    }
+    
+    public Supplier<? extends EstrategiaLimpieza> getEstrategia() {
+        return estrategia;
+    }
+}
\ No newline at end of file
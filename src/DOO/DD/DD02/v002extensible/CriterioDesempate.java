@@ -0,0 +1,13 @@
+package DOO.DD.DD02.v002extensible;
+
+// Cómo elige Mundo entre las celdas empatadas en el nivel máximo de suciedad
+public enum CriterioDesempate {
+    // La que ocupa la primera ranura de la cubeta del nivel: un orden arbitrario, ni por filas ni de
+    // registro, porque quitar una celda mueve la última a su hueco. Es constante y determinista
+    // para la misma secuencia de escrituras
+    PRIMERO,
+    // La más cercana a la posición de referencia; recorre la cubeta entera en cada búsqueda, O(tamaño
+    // de la cubeta)
+    MAS_CERCANO,
+    ALEATORIO    // Una cualquiera al azar
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package DOO.DD.DD02.v002extensible;
+
+// Cómo deciden los agentes qué hacer con la celda a la que llegan. Los dos modos dan exactamente el
+// mismo resultado; solo cambia el coste de la llamada.
+public enum Despacho {
+    // Doble despacho: celda.aceptar(visitante) sobre la vista ligera de la celda
+    VISITANTE,
+    // Switch sobre el código de tipo de la rejilla empaquetada, sin vistas ni llamadas virtuales
+    TIPO
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.Arrays;
+
+// Resumen estadístico de una muestra: media, percentiles e histograma
+public class Distribucion {
+    private final long[] valores; // Ordenados de menor a mayor
+    
+    public Distribucion(long[] muestra) {
+        this.valores = muestra.clone();
+        Arrays.sort(this.valores);
+    }
+    
+    public int getTamano() {
+        return valores.length;
+    }
+    
+    public double media() {
+        if (valores.length == 0) {
+            return Double.NaN;
+        }
+        double suma = 0;
+        for (long valor : valores) {
+            suma += valor;
+        }
+        return suma / valores.length;
+    }
+    
+    public long minimo() {
+        return valores.length == 0 ? 0 : valores[0];
+    }
+    
+    public long maximo() {
+        return valores.length == 0 ? 0 : valores[valores.length - 1];
+    }
+    
+    // Percentil por el método del rango más cercano, con percentil entre 0 y 100
+    public long percentil(double percentil) {
+        if (valores.length == 0) {
+            return 0;
+        }
+        int rango = (int) Math.ceil(percentil / 100.0 * valores.length);
+        return valores[Math.max(0, Math.min(valores.length - 1, rango - 1))];
+    }
+    
+    // Reparte el intervalo [minimo, maximo] en cubos de igual anchura
+    public int[] histograma(int cubos) {
+        int[] cuentas = new int[cubos];
+        if (valores.length == 0) {
+            return cuentas;
+        }
+        long minimo = minimo();
+        double anchura = (maximo() - minimo + 1) / (double) cubos;
+        for (long valor : valores) {
+            cuentas[Math.min(cubos - 1, (int) ((valor - minimo) / anchura))]++;
+        }
+        return cuentas;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("media %.1f | p50 %d | p90 %d | p99 %d | min %d | max %d",
+                             media(), percentil(50), percentil(90), percentil(99), minimo(), maximo());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package DOO.DD.DD02.v002extensible;
+
+// Ejecuta simulaciones completas sin entrada de teclado ni salida por consola
+public class EjecutorDesatendido {
+    
+    public static ResultadoSimulacion ejecutar(ConfiguracionSimulacion configuracion) {
+        long inicio = System.nanoTime();
+        
+        Simulacion simulacion = new Simulacion(configuracion);
+        simulacion.setSilenciosa(true);
+        simulacion.inicializar();
+        
+        // El índice de zonas conexas reserva dos enteros por celda: en un mundo por bloques no se
+        // construye y la suciedad inalcanzable acaba la ejecución por batería o por turnos
+        boolean comprobarAlcance = !configuracion.isMundoPorBloques();
+        MotivoFin motivo = motivoFin(simulacion, comprobarAlcance);
+        while (motivo == null) {
+            if (simulacion.getTurno() >= configuracion.getMaxTurnos()) {
+                motivo = MotivoFin.LIMITE_TURNOS;
+            } else {
+                simulacion.ejecutarTurno();
+                motivo = motivoFin(simulacion, comprobarAlcance);
+            }
+        }
+        
+        simulacion.getRegistroEventos().cerrar();
+        Aspiradora aspiradora = simulacion.getAspiradora();
+        return new ResultadoSimulacion(motivo, simulacion.getTurno(), aspiradora.getPasos(),
+                                       aspiradora.getBateriaConsumida(),
+                                       simulacion.getMundo().calcularSuciedadTotal(),
+                                       simulacion.getGatosAparecidos(), System.nanoTime() - inicio);
+    }
+    
+    private static MotivoFin motivoFin(Simulacion simulacion, boolean comprobarAlcance) {
+        Aspiradora aspiradora = simulacion.getAspiradora();
+        if (simulacion.getMundo().estaLimpio()) {
+            return MotivoFin.LIMPIO;
+        }
+        Posicion posicion = aspiradora.getPosicion();
+        if (simulacion.getMundo().estaAtrapada(posicion.getFila(), posicion.getColumna())) {
+            return MotivoFin.ATRAPADA;
+        }
+        // Las zonas se calculan al empezar y solo se rehacen si cambian los obstáculos; la suciedad de
+        // cada zona la mantiene Mundo al escribir, así que la consulta de cada turno es O(1)
+        if (comprobarAlcance && simulacion.getMundo().suciedadAlcanzable(posicion.getFila(), posicion.getColumna()) == 0) {
+            return MotivoFin.SUCIEDAD_INALCANZABLE;
+        }
+        if (aspiradora.getBateria() <= 0) {
+            return MotivoFin.SIN_BATERIA;
+        }
+        // Si la estrategia admite la bolsa llena, solo obliga a ir a la estación de vaciado
+        if (aspiradora.getBasuraRecogida() >= aspiradora.getCapacidadBolsa()
+                && !simulacion.getEstrategia().admiteBolsaLlena()) {
+            return MotivoFin.BOLSA_LLENA;
+        }
+        return null;
+    }
+    
+    public static void main(String[] args) {
+        int simulaciones = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        boolean inteligente = args.length > 1 && Boolean.parseBoolean(args[1]);
+        
+        long turnosTotales = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < simulaciones; i++) {
+            ResultadoSimulacion resultado = ejecutar(new ConfiguracionSimulacion()
+                                                     .inteligente(inteligente)
+                                                     .conSemilla(i));
+            turnosTotales += resultado.getTurnos();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        
+        System.out.printf("%d simulaciones, %d turnos en %.2f s (%.0f turnos/s)%n",
+                          simulaciones, turnosTotales, segundos, turnosTotales / segundos);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package DOO.DD.DD02.v002extensible;
+
+// Un vecino accesible cualquiera, con el flujo aleatorio de la aspiradora
+public class EstrategiaAleatoria implements EstrategiaLimpieza {
+    
+    @Override
+    public int elegirPaso(Mundo mundo, Aspiradora aspiradora) {
+        return aspiradora.pasoAlAzar(mundo);
+    }
+}
\ No newline at end of file
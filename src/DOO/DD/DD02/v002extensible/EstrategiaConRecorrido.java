@@ -0,0 +1,17 @@
+package DOO.DD.DD02.v002extensible;
+
+// Sigue el plan de recorrido con desvíos a las estaciones de carga y vaciado; con la bolsa llena
+// puede seguir moviéndose (sin aspirar) para llegar a vaciarla. Sin nada pendiente al alcance se
+// queda quieta para no gastar batería.
+public class EstrategiaConRecorrido implements EstrategiaLimpieza {
+    
+    @Override
+    public int elegirPaso(Mundo mundo, Aspiradora aspiradora) {
+        return aspiradora.pasoConRecorrido(mundo);
+    }
+    
+    @Override
+    public boolean admiteBolsaLlena() {
+        return true;
+    }
+}
\ No newline at end of file
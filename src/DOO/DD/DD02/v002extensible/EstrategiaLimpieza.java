@@ -0,0 +1,15 @@
+package DOO.DD.DD02.v002extensible;
+
+// Política de la aspiradora en modo automático: en cada turno elige la celda a la que avanzar.
+// La aspiradora comprueba antes la batería y la bolsa y después que la celda elegida sea vecina y
+// accesible; avanzar, gastar batería y aspirar lo hace ella.
+public interface EstrategiaLimpieza {
+    
+    // Índice de la celda a la que avanzar (una vecina o la propia), o -1 para quedarse quieta
+    int elegirPaso(Mundo mundo, Aspiradora aspiradora);
+    
+    // Con true la aspiradora sigue moviéndose con la bolsa llena, por ejemplo hacia una estación de vaciado
+    default boolean admiteBolsaLlena() {
+        return false;
+    }
+}
\ No newline at end of file
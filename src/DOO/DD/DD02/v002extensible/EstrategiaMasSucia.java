@@ -0,0 +1,18 @@
+package DOO.DD.DD02.v002extensible;
+
+// Va por A* a la celda más sucia (la más cercana entre las empatadas, según el criterio del mundo);
+// si no queda suciedad o no hay ruta, se mueve al azar
+public class EstrategiaMasSucia implements EstrategiaLimpieza {
+    private final Posicion objetivo = new Posicion(0, 0); // Reutilizado en cada turno
+    
+    @Override
+    public int elegirPaso(Mundo mundo, Aspiradora aspiradora) {
+        if (mundo.buscarPosicionMasSucia(aspiradora.getPosicion(), objetivo)) {
+            int siguiente = aspiradora.pasoHacia(mundo, objetivo.getFila(), objetivo.getColumna());
+            if (siguiente >= 0) {
+                return siguiente;
+            }
+        }
+        return aspiradora.pasoAlAzar(mundo);
+    }
+}
\ No newline at end of file
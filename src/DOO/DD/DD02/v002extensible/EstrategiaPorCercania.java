@@ -0,0 +1,12 @@
+package DOO.DD.DD02.v002extensible;
+
+// Baja por el campo de distancias hacia la suciedad más cercana: un paso en O(1)
+public class EstrategiaPorCercania implements EstrategiaLimpieza {
+    
+    @Override
+    public int elegirPaso(Mundo mundo, Aspiradora aspiradora) {
+        Posicion posicion = aspiradora.getPosicion();
+        int siguiente = mundo.getCampoDistancias().siguientePaso(posicion.getFila(), posicion.getColumna());
+        return siguiente >= 0 ? siguiente : aspiradora.pasoAlAzar(mundo);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Lanza muchas simulaciones independientes repartidas en un ForkJoinPool, una semilla por ejecución.
+// Cada ejecución escribe solo en su propia posición de los arrays de resultados.
+public class ExperimentoMonteCarlo {
+    private static final int UMBRAL_DIVISION = 16;
+    
+    private final ForkJoinPool pool;
+    
+    public ExperimentoMonteCarlo() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    public ExperimentoMonteCarlo(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    public ResumenExperimento ejecutar(ConfiguracionSimulacion base, int ejecuciones, long semillaBase) {
+        long inicio = System.nanoTime();
+        
+        long[] semillas = new long[ejecuciones];
+        Aleatorio generadorSemillas = new Aleatorio(semillaBase);
+        for (int i = 0; i < ejecuciones; i++) {
+            semillas[i] = generadorSemillas.nextLong();
+        }
+        
+        Resultados resultados = new Resultados(ejecuciones);
+        pool.invoke(new TareaEjecuciones(base, semillas, resultados, 0, ejecuciones));
+        
+        int limpias = 0;
+        long[] pasosLimpias = new long[ejecuciones];
+        for (int i = 0; i < ejecuciones; i++) {
+            if (resultados.limpio[i]) {
+                pasosLimpias[limpias++] = resultados.pasos[i];
+            }
+        }
+        
+        return new ResumenExperimento(ejecuciones, limpias,
+                                      new Distribucion(Arrays.copyOf(pasosLimpias, limpias)),
+                                      new Distribucion(resultados.bateria),
+                                      new Distribucion(resultados.suciedad),
+                                      System.nanoTime() - inicio);
+    }
+    
+    private static class Resultados {
+        final long[] pasos;
+        final long[] bateria;
+        final long[] suciedad;
+        final boolean[] limpio;
+        
+        Resultados(int ejecuciones) {
+            pasos = new long[ejecuciones];
+            bateria = new long[ejecuciones];
+            suciedad = new long[ejecuciones];
+            limpio = new boolean[ejecuciones];
+        }
+    }
+    
+    private static class TareaEjecuciones extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final ConfiguracionSimulacion base;
+        private final long[] semillas;
+        private final Resultados resultados;
+        private final int desde;
+        private final int hasta;
+        
+        TareaEjecuciones(ConfiguracionSimulacion base, long[] semillas, Resultados resultados, int desde, int hasta) {
+            this.base = base;
+            this.semillas = semillas;
+            this.resultados = resultados;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+        
+        @Override
+        protected void compute() {
+            if (hasta - desde <= UMBRAL_DIVISION) {
+                for (int i = desde; i < hasta; i++) {
+                    ResultadoSimulacion resultado = EjecutorDesatendido.ejecutar(base.copiar().conSemilla(semillas[i]));
+                    resultados.pasos[i] = resultado.getPasos();
+                    resultados.bateria[i] = resultado.getBateriaConsumida();
+                    resultados.suciedad[i] = resultado.getSuciedadRestante();
+                    resultados.limpio[i] = resultado.getMotivoFin() == MotivoFin.LIMPIO;
+                }
+                return;
+            }
+            int mitad = (desde + hasta) >>> 1;
+            invokeAll(new TareaEjecuciones(base, semillas, resultados, desde, mitad),
+                      new TareaEjecuciones(base, semillas, resultados, mitad, hasta));
+        }
+    }
+    
+    public static void main(String[] args) {
+        int ejecuciones = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        ConfiguracionSimulacion base = new ConfiguracionSimulacion().conTamano(10, 20).conSuciedad(5);
+        ExperimentoMonteCarlo experimento = new ExperimentoMonteCarlo();
+        
+        System.out.println("Modo aleatorio:");
+        System.out.println(experimento.ejecutar(base.copiar().inteligente(false), ejecuciones, 42));
+        System.out.println("Modo inteligente:");
+        System.out.println(experimento.ejecutar(base.copiar().inteligente(true), ejecuciones, 42));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,370 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+// Muchas aspiradoras y mascotas en un mismo Mundo. Cada turno tiene tres fases:
+//   1. Decisión, en paralelo por franjas de filas: cada agente elige su siguiente celda con su propio
+//      flujo aleatorio, leyendo el mundo tal como quedó al acabar el turno anterior.
+//   2. Resolución, en paralelo por la franja de destino, de modo que los movimientos que cruzan de una
+//      franja a otra los resuelve una sola tarea: si varias aspiradoras eligen la misma celda entra la
+//      de mayor prioridad y las demás se quedan donde están. La prioridad rota con el turno. Una
+//      aspiradora nunca elige una celda ocupada al empezar el turno, así que no hay cadenas de esperas.
+//   3. Aplicación, en orden de agente: mover, limpiar, ensuciar, cargar... Son tantas escrituras como
+//      agentes y así el Mundo no necesita ningún cerrojo.
+// El resultado solo depende de la semilla, no del número de hilos.
+public class Flota {
+    private static final int FILAS_FRANJA = RejillaPorBloques.LADO_BLOQUE;
+    // Agentes que reúne como mínimo cada tarea: una decisión cuesta unas décimas de microsegundo y
+    // entregar una tarea al pool unos pocos microsegundos, así que con menos no compensa repartir
+    private static final int AGENTES_POR_TAREA = 32;
+    
+    private final ConfiguracionSimulacion configuracion;
+    private final ForkJoinPool pool;
+    private final Mundo mundo;
+    private final Aleatorio random;
+    private final Aspiradora[] aspiradoras;
+    private final Gato[] mascotas;
+    private final int franjas;
+    
+    private final int[] destinos;      // Por agente (aspiradoras primero): celda elegida o -1 para quedarse
+    private final byte[] ocupada;      // 1 si hay una aspiradora en la celda
+    private final int[] orden;         // Agentes agrupados por franja
+    private final int[] inicioFranja;
+    private final long[] claves;       // Aspiradoras que se mueven, agrupadas por franja de destino
+    private final int[] inicioDestino;
+    private final int[] conflictosFranja;
+    private final int[] finGrupo;      // Franja final (exclusiva) de cada grupo de franjas de una tarea
+    private int agentesPorTarea = AGENTES_POR_TAREA;
+    
+    private CampoDistancias suciedad;
+    private CampoDistancias cargadores;
+    private CampoDistancias vaciados;
+    private int turno;
+    private long conflictos;
+    
+    public Flota(ConfiguracionSimulacion configuracion, int numeroAspiradoras, int numeroMascotas) {
+        this(configuracion, numeroAspiradoras, numeroMascotas, ForkJoinPool.commonPool());
+    }
+    
+    public Flota(ConfiguracionSimulacion configuracion, int numeroAspiradoras, int numeroMascotas,
+                 ForkJoinPool pool) {
+        // Las decisiones usan campos de distancias, que en un mundo por bloques no están disponibles
+        if (configuracion.isMundoPorBloques() && (configuracion.isModoInteligente()
+                || configuracion.getCargadores() > 0 || configuracion.getVaciados() > 0)) {
+            throw new IllegalArgumentException("Una flota en un mundo por bloques solo admite el modo aleatorio sin estaciones");
+        }
+        this.configuracion = configuracion;
+        this.pool = pool;
+        Aleatorio raiz = new Aleatorio(configuracion.getSemilla());
+        this.mundo = configuracion.isMundoPorBloques()
+                     ? Mundo.porBloques(configuracion.getFilas(), configuracion.getColumnas(), raiz.dividir())
+                     : new Mundo(configuracion.getFilas(), configuracion.getColumnas(), raiz.dividir());
+        this.random = raiz.dividir();
+        this.aspiradoras = new Aspiradora[numeroAspiradoras];
+        this.mascotas = new Gato[numeroMascotas];
+        this.franjas = (mundo.filas + FILAS_FRANJA - 1) / FILAS_FRANJA;
+        
+        int agentes = numeroAspiradoras + numeroMascotas;
+        this.destinos = new int[agentes];
+        this.ocupada = new byte[mundo.filas * mundo.columnas];
+        this.orden = new int[agentes];
+        this.inicioFranja = new int[franjas + 1];
+        this.claves = new long[numeroAspiradoras];
+        this.inicioDestino = new int[franjas + 1];
+        this.conflictosFranja = new int[franjas];
+        this.finGrupo = new int[franjas];
+    }
+    
+    public void inicializar() {
+        mundo.generarObstaculos(configuracion.getPorcentajeObstaculos());
+        mundo.generarSuciedad(configuracion.getPorcentajeSuciedad());
+        if (configuracion.getCargadores() > 0 || configuracion.getVaciados() > 0) {
+            mundo.generarEstaciones(configuracion.getCargadores(), configuracion.getVaciados());
+        }
+        
+        // En un mundo por bloques no se cuentan las celdas (haría falta el índice de zonas conexas)
+        if (!configuracion.isMundoPorBloques() && mundo.contarAccesibles() < aspiradoras.length) {
+            throw new IllegalStateException("No hay celdas libres para " + aspiradoras.length + " aspiradoras");
+        }
+        
+        // Cada aspiradora en una celda distinta; las mascotas pueden compartir celda con cualquiera
+        for (int i = 0; i < aspiradoras.length; i++) {
+            int celda = celdaAccesibleAlAzar(true);
+            ocupada[celda] = 1;
+            aspiradoras[i] = new Aspiradora(celda / mundo.columnas, celda % mundo.columnas, random.dividir(),
+                                            configuracion.getParametros().getBateriaMaxima(),
+                                            configuracion.getParametros().getCapacidadBolsa());
+            aspiradoras[i].setDespacho(configuracion.getDespacho());
+        }
+        for (int i = 0; i < mascotas.length; i++) {
+            int celda = celdaAccesibleAlAzar(false);
+            mascotas[i] = new Gato(celda / mundo.columnas, celda % mundo.columnas, Integer.MAX_VALUE, random.dividir());
+            mascotas[i].setDespacho(configuracion.getDespacho());
+        }
+        
+        suciedad = configuracion.isModoInteligente() ? mundo.getCampoDistancias() : null;
+        cargadores = configuracion.getCargadores() > 0 ? mundo.getCampoCargadores() : null;
+        vaciados = configuracion.getVaciados() > 0 ? mundo.getCampoVaciados() : null;
+    }
+    
+    private int celdaAccesibleAlAzar(boolean libre) {
+        int celda;
+        do {
+            celda = mundo.celdaAccesibleAlAzar(random);
+            if (celda < 0) {
+                throw new IllegalStateException("No queda ninguna celda libre");
+            }
+        } while (libre && ocupada[celda] != 0);
+        return celda;
+    }
+    
+    public void ejecutarTurno() {
+        turno++;
+        // Los campos se reconstruyen al consultarlos si ha cambiado el mundo: se hace aquí, antes de
+        // que los lean varios hilos a la vez
+        if (suciedad != null) {
+            suciedad.getDistancia(0, 0);
+        }
+        if (cargadores != null) {
+            cargadores.getDistancia(0, 0);
+        }
+        if (vaciados != null) {
+            vaciados.getDistancia(0, 0);
+        }
+        mundo.vecinosAbiertos(0); // Lo mismo con las máscaras de vecinos
+        
+        agruparPorFranja();
+        enParalelo(this::decidirFranja, inicioFranja);
+        agruparPorDestino();
+        enParalelo(this::resolverFranja, inicioDestino);
+        for (int f = 0; f < franjas; f++) {
+            conflictos += conflictosFranja[f];
+        }
+        aplicar();
+    }
+    
+    private void agruparPorFranja() {
+        Arrays.fill(inicioFranja, 0);
+        for (int agente = 0; agente < destinos.length; agente++) {
+            inicioFranja[franjaDe(entidad(agente)) + 1]++;
+        }
+        for (int f = 0; f < franjas; f++) {
+            inicioFranja[f + 1] += inicioFranja[f];
+        }
+        int[] siguiente = Arrays.copyOf(inicioFranja, franjas);
+        for (int agente = 0; agente < destinos.length; agente++) {
+            orden[siguiente[franjaDe(entidad(agente))]++] = agente;
+        }
+    }
+    
+    private void decidirFranja(int franja) {
+        for (int k = inicioFranja[franja]; k < inicioFranja[franja + 1]; k++) {
+            int agente = orden[k];
+            destinos[agente] = agente < aspiradoras.length
+                               ? decidirAspiradora(aspiradoras[agente])
+                               : mascotas[agente - aspiradoras.length].elegirPaso(mundo);
+        }
+    }
+    
+    // Umbrales sencillos: a cargar si la batería apenas llega al cargador, a vaciar con la bolsa llena
+    // y si no a por suciedad (modo inteligente) o al azar. Nunca elige una celda ocupada por otra.
+    private int decidirAspiradora(Aspiradora aspiradora) {
+        int bateria = aspiradora.getBateria();
+        if (bateria <= 0) {
+            return -1;
+        }
+        int fila = aspiradora.getPosicion().getFila();
+        int columna = aspiradora.getPosicion().getColumna();
+        
+        int paso = -1;
+        int reserva = cargadores != null ? cargadores.getDistancia(fila, columna) : CampoDistancias.INALCANZABLE;
+        if (reserva != CampoDistancias.INALCANZABLE && bateria <= reserva + 1) {
+            paso = cargadores.siguientePaso(fila, columna);
+        } else if (aspiradora.getBasuraRecogida() >= aspiradora.getCapacidadBolsa()) {
+            if (vaciados == null) {
+                return -1; // Sin estación de vaciado se queda parada, como en la simulación normal
+            }
+            paso = vaciados.siguientePaso(fila, columna);
+        } else if (suciedad != null) {
+            paso = suciedad.siguientePaso(fila, columna);
+        }
+        // La propia celda la ocupa ella misma: quedarse a aspirar siempre se puede
+        if (paso >= 0 && (ocupada[paso] == 0 || paso == fila * mundo.columnas + columna)) {
+            return paso;
+        }
+        return pasoAlAzar(aspiradora.getAleatorio(), fila, columna);
+    }
+    
+    // Se quitan de la máscara de vecinos abiertos los ocupados por otra aspiradora y se tira una vez
+    private int pasoAlAzar(Aleatorio aleatorio, int fila, int columna) {
+        int origen = fila * mundo.columnas + columna;
+        int libres = mundo.vecinosAbiertos(origen);
+        for (int mascara = libres; mascara != 0; mascara &= mascara - 1) {
+            int d = Integer.numberOfTrailingZeros(mascara);
+            if (ocupada[origen + Posicion.DESPLAZAMIENTO_FILA[d] * mundo.columnas + Posicion.DESPLAZAMIENTO_COLUMNA[d]] != 0) {
+                libres &= ~(1 << d);
+            }
+        }
+        if (libres == 0) {
+            return -1;
+        }
+        int d = VecinosAbiertos.direccionAlAzar(libres, aleatorio);
+        return origen + Posicion.DESPLAZAMIENTO_FILA[d] * mundo.columnas + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+    }
+    
+    // Clave = celda de destino en la parte alta y prioridad del turno en la baja: al ordenar, la
+    // primera aspiradora de cada celda es la que entra
+    private void agruparPorDestino() {
+        Arrays.fill(inicioDestino, 0);
+        for (int i = 0; i < aspiradoras.length; i++) {
+            if (destinos[i] >= 0) {
+                inicioDestino[destinos[i] / mundo.columnas / FILAS_FRANJA + 1]++;
+            }
+        }
+        for (int f = 0; f < franjas; f++) {
+            inicioDestino[f + 1] += inicioDestino[f];
+        }
+        int[] siguiente = Arrays.copyOf(inicioDestino, franjas);
+        for (int i = 0; i < aspiradoras.length; i++) {
+            if (destinos[i] >= 0) {
+                int prioridad = Math.floorMod(i - turno, aspiradoras.length);
+                claves[siguiente[destinos[i] / mundo.columnas / FILAS_FRANJA]++] = (long) destinos[i] << 32 | prioridad;
+            }
+        }
+    }
+    
+    private void resolverFranja(int franja) {
+        int desde = inicioDestino[franja];
+        int hasta = inicioDestino[franja + 1];
+        Arrays.sort(claves, desde, hasta);
+        int perdedores = 0;
+        for (int k = desde + 1; k < hasta; k++) {
+            if (claves[k] >>> 32 == claves[k - 1] >>> 32) {
+                int perdedora = Math.floorMod((int) claves[k] + turno, aspiradoras.length);
+                destinos[perdedora] = -1;
+                perdedores++;
+            }
+        }
+        conflictosFranja[franja] = perdedores;
+    }
+    
+    private void aplicar() {
+        for (int i = 0; i < aspiradoras.length; i++) {
+            if (destinos[i] >= 0) {
+                Posicion posicion = aspiradoras[i].getPosicion();
+                ocupada[posicion.getFila() * mundo.columnas + posicion.getColumna()] = 0;
+                ocupada[destinos[i]] = 1;
+                aspiradoras[i].avanzarA(mundo, destinos[i]);
+            }
+        }
+        for (int i = 0; i < mascotas.length; i++) {
+            int destino = destinos[aspiradoras.length + i];
+            if (destino >= 0) {
+                mascotas[i].avanzarA(mundo, destino);
+            }
+        }
+    }
+    
+    private Entidad entidad(int agente) {
+        return agente < aspiradoras.length ? aspiradoras[agente] : mascotas[agente - aspiradoras.length];
+    }
+    
+    private static int franjaDe(Entidad entidad) {
+        return entidad.getPosicion().getFila() / FILAS_FRANJA;
+    }
+    
+    // Las franjas consecutivas se agrupan hasta reunir agentesPorTarea agentes (según inicio, el
+    // reparto por franja de la fase) y cada grupo es una tarea: el reparto depende del trabajo de cada
+    // turno y no del tamaño total de la flota. Con un solo grupo se hace todo en este hilo.
+    private void enParalelo(IntConsumer trabajo, int[] inicio) {
+        int grupos = 0;
+        int desde = 0;
+        for (int f = 0; f < franjas; f++) {
+            if (inicio[f + 1] - inicio[desde] >= agentesPorTarea || f == franjas - 1) {
+                finGrupo[grupos++] = f + 1;
+                desde = f + 1;
+            }
+        }
+        if (grupos < 2 || pool.getParallelism() == 1) {
+            for (int f = 0; f < franjas; f++) {
+                trabajo.accept(f);
+            }
+            return;
+        }
+        pool.invoke(new TareaFranjas(grupo -> {
+            for (int f = grupo == 0 ? 0 : finGrupo[grupo - 1]; f < finGrupo[grupo]; f++) {
+                trabajo.accept(f);
+            }
+        }, 0, grupos));
+    }
+    
+    // Mínimo de agentes por tarea paralela; el resultado no cambia, solo cómo se reparte el turno
+    public void setAgentesPorTarea(int agentesPorTarea) {
+        if (agentesPorTarea <= 0) {
+            throw new IllegalArgumentException("Hace falta al menos un agente por tarea: " + agentesPorTarea);
+        }
+        this.agentesPorTarea = agentesPorTarea;
+    }
+    
+    public Mundo getMundo() {
+        return mundo;
+    }
+    
+    public Aspiradora[] getAspiradoras() {
+        return aspiradoras.clone();
+    }
+    
+    public Gato[] getMascotas() {
+        return mascotas.clone();
+    }
+    
+    public int getTurno() {
+        return turno;
+    }
+    
+    // Movimientos denegados porque otra aspiradora con más prioridad eligió la misma celda
+    public long getConflictos() {
+        return conflictos;
+    }
+    
+    public void setRegistroEventos(RegistroEventos eventos) {
+        for (Aspiradora aspiradora : aspiradoras) {
+            aspiradora.setRegistroEventos(eventos);
+        }
+        for (Gato mascota : mascotas) {
+            mascota.setRegistroEventos(eventos);
+        }
+    }
+    
+    // Uso: Flota [aspiradoras] [mascotas] [lado] [turnos] [agentes por tarea]
+    public static void main(String[] args) {
+        int numeroAspiradoras = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int numeroMascotas = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+        int lado = args.length > 2 ? Integer.parseInt(args[2]) : 512;
+        int turnos = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+        
+        Flota flota = new Flota(new ConfiguracionSimulacion()
+                                .conTamano(lado, lado)
+                                .inteligente(true)
+                                .conEstaciones(8, 8)
+                                .conSemilla(1),
+                                numeroAspiradoras, numeroMascotas);
+        if (args.length > 4) {
+            flota.setAgentesPorTarea(Integer.parseInt(args[4]));
+        }
+        flota.inicializar();
+        long inicio = System.nanoTime();
+        for (int t = 0; t < turnos; t++) {
+            flota.ejecutarTurno();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        
+        System.out.printf("%d aspiradoras, %d mascotas, %d turnos en %.2f s (%.0f movimientos/s), "
+                          + "%d conflictos, suciedad restante %d%n",
+                          numeroAspiradoras, numeroMascotas, turnos, segundos,
+                          (double) turnos * (numeroAspiradoras + numeroMascotas) / segundos,
+                          flota.getConflictos(), flota.mundo.calcularSuciedadTotal());
+    }
+}
\ No newline at end of file
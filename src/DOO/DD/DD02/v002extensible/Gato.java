@@ -1,16 +1,25 @@
 package DOO.DD.DD02.v002extensible;
 
-import java.util.Random;
+import java.nio.ByteBuffer;
 
 public class Gato implements Entidad, VisitanteCelda {
+    static final int BYTES_ESTADO = 3 * 4 + 8;
+    
     private Posicion posicion;
     private int pasosRestantes;
-    private Random random;
+    private Aleatorio random;
+    private RegistroEventos eventos;
+    private Despacho despacho = Despacho.VISITANTE;
     
     public Gato(int fila, int columna, int pasos) {
+        this(fila, columna, pasos, new Aleatorio());
+    }
+    
+    public Gato(int fila, int columna, int pasos, Aleatorio random) {
         this.posicion = new Posicion(fila, columna);
         this.pasosRestantes = pasos;
-        this.random = new Random();
+        this.random = random;
+        this.eventos = RegistroEventos.NULO;
     }
     
     @Override
@@ -22,53 +31,80 @@ public class Gato implements Entidad, VisitanteCelda {
         return pasosRestantes;
     }
     
+    // Reutiliza el mismo gato para una nueva aparición sin crear objetos
+    void reaparecer(int fila, int columna, int pasos) {
+        posicion.setFila(fila);
+        posicion.setColumna(columna);
+        pasosRestantes = pasos;
+    }
+    
+    public void setRegistroEventos(RegistroEventos eventos) {
+        this.eventos = eventos;
+    }
+    
+    public void setDespacho(Despacho despacho) {
+        this.despacho = despacho;
+    }
+    
     public boolean moverYEnsuciar(Mundo mundo) {
         if (pasosRestantes <= 0) {
             return false; // El gato desaparece
         }
         
-        for (int intentos = 0; intentos < 8; intentos++) {
-            int direccion = random.nextInt(8);
-            int nuevaFila = posicion.getFila();
-            int nuevaColumna = posicion.getColumna();
-            
-            switch (direccion) {
-                case 0: nuevaFila--; break;
-                case 1: nuevaFila--; nuevaColumna++; break;
-                case 2: nuevaColumna++; break;
-                case 3: nuevaFila++; nuevaColumna++; break;
-                case 4: nuevaFila++; break;
-                case 5: nuevaFila++; nuevaColumna--; break;
-                case 6: nuevaColumna--; break;
-                case 7: nuevaFila--; nuevaColumna--; break;
-            }
-            
-            if (mundo.posicionAccesible(nuevaFila, nuevaColumna)) {
-                posicion.setFila(nuevaFila);
-                posicion.setColumna(nuevaColumna);
-                pasosRestantes--;
-                
-                Celda celdaActual = mundo.getCelda(posicion.getFila(), posicion.getColumna());
-                boolean cambio = celdaActual.aceptar(this);
-                
-                if (cambio && celdaActual instanceof CeldaLimpia) {
-                    mundo.setCelda(posicion.getFila(), posicion.getColumna(), 
-                                   new CeldaSucia(posicion.getFila(), posicion.getColumna(), 1));
-                }
-                
-                return true;
-            }
+        int destino = elegirPaso(mundo);
+        if (destino >= 0) {
+            avanzarA(mundo, destino);
+            return true;
         }
         
         pasosRestantes--;
         return pasosRestantes > 0;
     }
     
+    // Vecina accesible al azar o -1 si el gato está rodeado; no modifica el mundo
+    int elegirPaso(Mundo mundo) {
+        return mundo.vecinoAlAzar(posicion.getFila() * mundo.columnas + posicion.getColumna(), random);
+    }
+    
+    void avanzarA(Mundo mundo, int indice) {
+        posicion.setFila(indice / mundo.columnas);
+        posicion.setColumna(indice % mundo.columnas);
+        pasosRestantes--;
+        
+        if (despacho == Despacho.TIPO) {
+            ensuciarPorTipo(mundo, posicion.getFila(), posicion.getColumna());
+            return;
+        }
+        
+        Celda celdaActual = mundo.getCelda(posicion.getFila(), posicion.getColumna());
+        boolean cambio = celdaActual.aceptar(this);
+        
+        if (cambio && celdaActual instanceof CeldaLimpia) {
+            mundo.ensuciar(posicion.getFila(), posicion.getColumna(), 1);
+        }
+    }
+    
+    // Mismo efecto que el visitante, decidido con un switch sobre el código de la rejilla
+    private void ensuciarPorTipo(Mundo mundo, int fila, int columna) {
+        switch (Mundo.tipoDe(mundo.getCodigo(fila * mundo.columnas + columna))) {
+            case Mundo.TIPO_LIMPIA:
+                eventos.publicar(TipoEvento.CELDA_ENSUCIADA, fila, columna, 0, 1);
+                mundo.ensuciar(fila, columna, 1);
+                break;
+            case Mundo.TIPO_SUCIA:
+                int nivelAnterior = mundo.getDato(fila, columna);
+                mundo.aumentarSuciedad(fila, columna);
+                eventos.publicar(TipoEvento.SUCIEDAD_AUMENTADA, fila, columna, nivelAnterior, mundo.getDato(fila, columna));
+                break;
+            default:
+                break; // Obstáculos y estaciones no se ensucian
+        }
+    }
+    
     
     @Override
     public boolean visitarCeldaLimpia(CeldaLimpia celda) {
-        System.out.printf("Gato ensució celda limpia [%d,%d]%n", 
-                          celda.getFila(), celda.getColumna());
+        eventos.publicar(TipoEvento.CELDA_ENSUCIADA, celda.getFila(), celda.getColumna(), 0, 1);
         return true; // La celda debe convertirse en sucia
     }
     
@@ -76,8 +112,8 @@ public class Gato implements Entidad, VisitanteCelda {
     public boolean visitarCeldaSucia(CeldaSucia celda) {
         int nivelAnterior = celda.getNivelSuciedad();
         celda.aumentarSuciedad();
-        System.out.printf("Gato aumentó suciedad en celda [%d,%d]. Nivel anterior: %d, Nivel actual: %d%n", 
-                          celda.getFila(), celda.getColumna(), nivelAnterior, celda.getNivelSuciedad());
+        eventos.publicar(TipoEvento.SUCIEDAD_AUMENTADA, celda.getFila(), celda.getColumna(),
+                         nivelAnterior, celda.getNivelSuciedad());
         return false; // La celda sigue siendo sucia
     }
     
@@ -85,4 +121,32 @@ public class Gato implements Entidad, VisitanteCelda {
     public boolean visitarCeldaObstaculo(CeldaObstaculo celda) {
         return false; // La celda no cambia
     }
+    
+    @Override
+    public boolean visitarCeldaCargador(CeldaCargador celda) {
+        return false; // Las estaciones no se ensucian
+    }
+    
+    @Override
+    public boolean visitarCeldaVaciado(CeldaVaciado celda) {
+        return false; // Las estaciones no se ensucian
+    }
+    
+    Aleatorio getAleatorio() {
+        return random;
+    }
+    
+    void guardarEstado(ByteBuffer destino) {
+        destino.putInt(posicion.getFila());
+        destino.putInt(posicion.getColumna());
+        destino.putInt(pasosRestantes);
+        destino.putLong(random.getEstado());
+    }
+    
+    void restaurarEstado(ByteBuffer origen) {
+        posicion.setFila(origen.getInt());
+        posicion.setColumna(origen.getInt());
+        pasosRestantes = origen.getInt();
+        random.setEstado(origen.getLong());
+    }
 }
\ No newline at end of file
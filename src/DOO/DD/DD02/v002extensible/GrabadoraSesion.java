@@ -0,0 +1,109 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Graba una sesión interactiva: la configuración (con la semilla) y el flujo de comandos.
+//
+// Formato (big endian):
+//   int magia, int versión, int filas, int columnas, int % obstáculos, int % suciedad,
+//   long semilla, byte inteligente, byte opciones (las mismas que en Instantanea),
+//   int cargadores, int estaciones de vaciado, int batería, int bolsa, int % gato, int pasos del gato
+//   registros: '\n' + varint (racha de turnos) | carácter ASCII del comando | 0 + long suma final
+//
+// Cada registro se escribe en el fichero al registrarlo, sin búfer: si la sesión acaba mal (excepción,
+// Ctrl-C) el fichero ya recoge todo lo ejecutado. La racha de turnos abierta es siempre el último
+// registro y se reescribe en su sitio con cada turno; su varint solo puede crecer, así que no quedan
+// bytes viejos detrás.
+public class GrabadoraSesion {
+    static final int MAGIA = 0x44445345; // "DDSE"
+    static final int VERSION = 4; // La 4 añade batería, bolsa y gato; la 3 cambió la generación del mundo
+    static final byte FIN = 0; // trim() elimina los caracteres de control, así que ningún comando es 0
+    
+    private static final int TAMANO_CABECERA = 12 * 4 + 8 + 2;
+    
+    private final FileChannel canal;
+    private final ByteBuffer registro = ByteBuffer.allocate(16);
+    private long inicioRacha = -1; // Posición de la racha de turnos abierta, -1 si el último registro es otro
+    private int turnosRacha;
+    private int comandos;
+    
+    public GrabadoraSesion(Path ruta, ConfiguracionSimulacion configuracion) throws IOException {
+        this.canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                      StandardOpenOption.WRITE);
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+        cabecera.putInt(MAGIA);
+        cabecera.putInt(VERSION);
+        cabecera.putInt(configuracion.getFilas());
+        cabecera.putInt(configuracion.getColumnas());
+        cabecera.putInt(configuracion.getPorcentajeObstaculos());
+        cabecera.putInt(configuracion.getPorcentajeSuciedad());
+        cabecera.putLong(configuracion.getSemilla());
+        cabecera.put((byte) (configuracion.isModoInteligente() ? 1 : 0));
+        cabecera.put(Instantanea.opciones(configuracion));
+        cabecera.putInt(configuracion.getCargadores());
+        cabecera.putInt(configuracion.getVaciados());
+        ParametrosLimpieza parametros = configuracion.getParametros();
+        cabecera.putInt(parametros.getBateriaMaxima());
+        cabecera.putInt(parametros.getCapacidadBolsa());
+        cabecera.putInt(parametros.getProbabilidadGato());
+        cabecera.putInt(parametros.getPasosGato());
+        cabecera.flip();
+        escribir(cabecera, 0);
+    }
+    
+    public void registrar(char comando) throws IOException {
+        comandos++;
+        registro.clear();
+        if (comando == Simulacion.COMANDO_TURNO) {
+            if (inicioRacha < 0) {
+                inicioRacha = canal.position();
+            }
+            turnosRacha++;
+            registro.put((byte) Simulacion.COMANDO_TURNO);
+            int resto = turnosRacha;
+            while ((resto & ~0x7F) != 0) {
+                registro.put((byte) ((resto & 0x7F) | 0x80));
+                resto >>>= 7;
+            }
+            registro.put((byte) resto);
+            registro.flip();
+            escribir(registro, inicioRacha);
+            return;
+        }
+        inicioRacha = -1;
+        turnosRacha = 0;
+        // Un carácter no ASCII truncado a byte podría confundirse con un comando válido
+        registro.put((byte) (comando < 0x80 ? comando : '?'));
+        registro.flip();
+        escribir(registro, canal.position());
+    }
+    
+    // Cierra la grabación con la suma de comprobación del estado final
+    public long cerrar(Simulacion simulacion) throws IOException {
+        long suma = simulacion.sumaComprobacion();
+        registro.clear();
+        registro.put(FIN);
+        registro.putLong(suma);
+        registro.flip();
+        escribir(registro, canal.position());
+        canal.close();
+        return suma;
+    }
+    
+    public int getComandos() {
+        return comandos;
+    }
+    
+    // Escribe el registro entero a partir de posicion y deja el canal justo detrás
+    private void escribir(ByteBuffer datos, long posicion) throws IOException {
+        long fin = posicion + datos.remaining();
+        while (datos.hasRemaining()) {
+            posicion += canal.write(datos, posicion);
+        }
+        canal.position(fin);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,681 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+// Planificación jerárquica al estilo HPA*: el plano se divide en clusters de LADO x LADO celdas. En
+// cada frontera entre dos clusters se eligen entradas (una por tramo abierto corto, dos por tramo
+// largo, más los pasos en diagonal que no tienen alternativa recta) y dentro de cada cluster se
+// guardan las distancias entre sus entradas. Una ruta larga se busca con A* sobre ese grafo, con el
+// origen y el destino enlazados a las entradas de su cluster, y se refina tramo a tramo con BFS
+// limitados a un cluster. Las rutas salen casi óptimas: se pierde lo que ahorraría cruzar una
+// frontera fuera de sus entradas y lo que cuesta inflar la heurística (unos pocos pasos por ciento).
+// Un obstáculo puesto o quitado con setCelda solo rehace las fronteras que tocan la celda y los
+// clusters cuyas entradas cambian; los cambios masivos (generación, restauración) lo rehacen entero
+// en la siguiente consulta.
+public class GrafoJerarquico {
+    public static final int INALCANZABLE = Integer.MAX_VALUE;
+    static final int LADO = 32;
+    private static final int TRAMO_LARGO = 6;  // Desde esta longitud un tramo abierto tiene dos entradas
+    private static final int HOLGURA = 4;      // Ids de reserva por cluster para no renumerar en cada parche
+    private static final int SIN_PADRE = -1;
+    private static final int ANCHO_LOCAL = LADO + 2; // Cluster más un marco de celdas cerradas
+    
+    private final Mundo mundo;
+    private final int filas;
+    private final int columnas;
+    private final int clustersFila;
+    private final int clustersColumna;
+    
+    // Entradas de cada frontera, un bit por posición: [2 * frontera] lado de arriba o de la izquierda,
+    // [2 * frontera + 1] lado de abajo o de la derecha
+    private final long[] fronterasVerticales;
+    private final long[] fronterasHorizontales;
+    private final byte[] esquinas;     // Bit 0: diagonal por la esquina hacia abajo a la derecha, bit 1: hacia abajo a la izquierda
+    private final int[][] nodos;       // Celdas de entrada de cada cluster, ordenadas
+    private final int[][] distancias;  // Distancias sin salir del cluster entre sus entradas (k x k)
+    private final int[][] coordenadas; // Fila y columna de cada entrada, para la heurística sin divisiones
+    // Cruces de frontera de cada entrada: enlaces[cluster][a] .. enlaces[cluster][a + 1] delimitan los
+    // de la entrada a, cada uno empaquetado como dirección del cluster vecino << 8 | entrada en él
+    private final int[][] enlaces;
+    private final int[] desplazamientoCluster = new int[8];
+    private final int[] base;          // Primer id de búsqueda de cada cluster
+    private final int[] capacidad;
+    private int totalIds;
+    private int version;
+    private boolean valido;
+    private int reconstrucciones;
+    private int parches;
+    
+    // Búsqueda sobre el grafo: ids base[cluster] + entrada; el id totalIds es el destino
+    private int[] coste = new int[0];
+    private int[] padre;
+    private int[] celda;
+    private int[] clusterId;
+    private int[] visitada;
+    private int[] cerrada;
+    private int generacion;
+    private long[] monticulo = new long[64];
+    private int tamanoMonticulo;
+    private int[] distanciaDestino = new int[16];
+    private final BusquedaLocal local = new BusquedaLocal();
+    
+    GrafoJerarquico(Mundo mundo) {
+        this.mundo = mundo;
+        this.filas = mundo.filas;
+        this.columnas = mundo.columnas;
+        this.clustersFila = (filas + LADO - 1) / LADO;
+        this.clustersColumna = (columnas + LADO - 1) / LADO;
+        int clusters = clustersFila * clustersColumna;
+        this.fronterasVerticales = new long[2 * clustersFila * Math.max(0, clustersColumna - 1)];
+        this.fronterasHorizontales = new long[2 * Math.max(0, clustersFila - 1) * clustersColumna];
+        this.esquinas = new byte[Math.max(0, clustersFila - 1) * Math.max(0, clustersColumna - 1)];
+        this.nodos = new int[clusters][];
+        this.distancias = new int[clusters][];
+        this.coordenadas = new int[clusters][];
+        this.enlaces = new int[clusters][];
+        for (int d = 0; d < 8; d++) {
+            desplazamientoCluster[d] = Posicion.DESPLAZAMIENTO_FILA[d] * clustersColumna + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+        }
+        this.base = new int[clusters];
+        this.capacidad = new int[clusters];
+    }
+    
+    public int getReconstrucciones() {
+        return reconstrucciones;
+    }
+    
+    public int getParches() {
+        return parches;
+    }
+    
+    public int contarEntradas() {
+        asegurarValido();
+        int total = 0;
+        for (int[] entradas : nodos) {
+            total += entradas.length;
+        }
+        return total;
+    }
+    
+    // Longitud de la ruta jerárquica, o INALCANZABLE si no hay camino
+    public int distancia(int filaOrigen, int columnaOrigen, int filaDestino, int columnaDestino) {
+        return buscar(filaOrigen * columnas + columnaOrigen, filaDestino * columnas + columnaDestino)
+               ? coste[totalIds] : INALCANZABLE;
+    }
+    
+    // Celdas de la ruta sin el origen y con el destino, o null si no hay camino
+    int[] ruta(int origen, int destino) {
+        if (!buscar(origen, destino)) {
+            return null;
+        }
+        
+        // Entradas por las que pasa la ruta, en orden, terminando en el destino
+        int entradas = 0;
+        for (int id = padre[totalIds]; id != SIN_PADRE; id = padre[id]) {
+            entradas++;
+        }
+        int[] puntos = new int[entradas + 1];
+        puntos[entradas] = destino;
+        int k = entradas;
+        for (int id = padre[totalIds]; id != SIN_PADRE; id = padre[id]) {
+            puntos[--k] = celda[id];
+        }
+        
+        int[] camino = new int[coste[totalIds]];
+        int escritas = 0;
+        int actual = origen;
+        for (int punto : puntos) {
+            if (punto == actual) {
+                continue;
+            }
+            if (clusterDe(punto) != clusterDe(actual)) {
+                camino[escritas++] = punto; // Cruce de frontera: las dos celdas son vecinas
+            } else {
+                local.recorrer(clusterDe(actual), actual);
+                escritas = local.camino(punto, camino, escritas);
+            }
+            actual = punto;
+        }
+        return camino;
+    }
+    
+    void invalidar() {
+        valido = false;
+    }
+    
+    // Se llama justo después de escribir la celda, con la versión de obstáculos ya incrementada
+    void obstaculoCambiado(int indice) {
+        if (!valido || version != mundo.getVersionObstaculos() - 1) {
+            valido = false;
+            return;
+        }
+        int filaCluster = indice / columnas / LADO;
+        int columnaCluster = indice % columnas / LADO;
+        for (int i = Math.max(0, filaCluster - 1); i <= filaCluster; i++) {
+            for (int j = Math.max(0, columnaCluster - 1); j <= columnaCluster; j++) {
+                calcularFronteras(i, j);
+            }
+        }
+        
+        // El cluster de la celda cambia por dentro; los vecinos solo si han cambiado sus entradas
+        boolean renumerar = false;
+        int propio = filaCluster * clustersColumna + columnaCluster;
+        for (int i = Math.max(0, filaCluster - 1); i <= Math.min(clustersFila - 1, filaCluster + 1); i++) {
+            for (int j = Math.max(0, columnaCluster - 1); j <= Math.min(clustersColumna - 1, columnaCluster + 1); j++) {
+                int cluster = i * clustersColumna + j;
+                int[] entradas = calcularNodos(cluster);
+                if (cluster == propio || !Arrays.equals(entradas, nodos[cluster])) {
+                    calcularCluster(cluster, entradas, local);
+                    renumerar |= entradas.length > capacidad[cluster];
+                }
+            }
+        }
+        for (int i = Math.max(0, filaCluster - 2); i <= Math.min(clustersFila - 1, filaCluster + 2); i++) {
+            for (int j = Math.max(0, columnaCluster - 2); j <= Math.min(clustersColumna - 1, columnaCluster + 2); j++) {
+                calcularEnlaces(i * clustersColumna + j);
+            }
+        }
+        if (renumerar) {
+            renumerar();
+        }
+        version = mundo.getVersionObstaculos();
+        parches++;
+    }
+    
+    private void asegurarValido() {
+        if (valido && version == mundo.getVersionObstaculos()) {
+            return;
+        }
+        enParalelo(clustersFila, i -> {
+            for (int j = 0; j < clustersColumna; j++) {
+                calcularFronteras(i, j);
+            }
+        });
+        enParalelo(clustersFila, i -> {
+            BusquedaLocal busqueda = new BusquedaLocal();
+            for (int j = 0; j < clustersColumna; j++) {
+                int cluster = i * clustersColumna + j;
+                calcularCluster(cluster, calcularNodos(cluster), busqueda);
+            }
+        });
+        enParalelo(clustersFila, i -> {
+            for (int j = 0; j < clustersColumna; j++) {
+                calcularEnlaces(i * clustersColumna + j);
+            }
+        });
+        renumerar();
+        version = mundo.getVersionObstaculos();
+        valido = true;
+        reconstrucciones++;
+    }
+    
+    private static void enParalelo(int tareas, IntConsumer trabajo) {
+        ForkJoinPool.commonPool().invoke(new TareaFranjas(trabajo, 0, tareas));
+    }
+    
+    private void renumerar() {
+        int total = 0;
+        for (int cluster = 0; cluster < nodos.length; cluster++) {
+            base[cluster] = total;
+            capacidad[cluster] = nodos[cluster].length + HOLGURA;
+            total += capacidad[cluster];
+        }
+        totalIds = total;
+    }
+    
+    private int clusterDe(int indice) {
+        return indice / columnas / LADO * clustersColumna + indice % columnas / LADO;
+    }
+    
+    // Fronteras derecha e inferior del cluster (i, j) y la esquina que comparten
+    private void calcularFronteras(int i, int j) {
+        int fila0 = i * LADO;
+        int columna0 = j * LADO;
+        int alto = Math.min(LADO, filas - fila0);
+        int ancho = Math.min(LADO, columnas - columna0);
+        if (j + 1 < clustersColumna) {
+            int columna = columna0 + LADO - 1;
+            long izquierda = 0;
+            long derecha = 0;
+            for (int k = 0; k < alto; k++) {
+                izquierda |= abierta(fila0 + k, columna) << k;
+                derecha |= abierta(fila0 + k, columna + 1) << k;
+            }
+            marcarEntradas(fronterasVerticales, i * (clustersColumna - 1) + j, izquierda, derecha, alto);
+        }
+        if (i + 1 < clustersFila) {
+            int fila = fila0 + LADO - 1;
+            long arriba = 0;
+            long abajo = 0;
+            for (int k = 0; k < ancho; k++) {
+                arriba |= abierta(fila, columna0 + k) << k;
+                abajo |= abierta(fila + 1, columna0 + k) << k;
+            }
+            marcarEntradas(fronterasHorizontales, i * clustersColumna + j, arriba, abajo, ancho);
+        }
+        if (i + 1 < clustersFila && j + 1 < clustersColumna) {
+            int fila = fila0 + LADO - 1;
+            int columna = columna0 + LADO - 1;
+            long a = abierta(fila, columna);
+            long b = abierta(fila, columna + 1);
+            long c = abierta(fila + 1, columna);
+            long d = abierta(fila + 1, columna + 1);
+            int marcas = 0;
+            if ((a & d) == 1 && (b | c) == 0) {
+                marcas |= 1;
+            }
+            if ((b & c) == 1 && (a | d) == 0) {
+                marcas |= 2;
+            }
+            esquinas[i * (clustersColumna - 1) + j] = (byte) marcas;
+        }
+    }
+    
+    private long abierta(int fila, int columna) {
+        return mundo.esAccesible(fila * columnas + columna) ? 1 : 0;
+    }
+    
+    // Entradas de una frontera a partir de las celdas accesibles de cada lado, un bit por posición
+    private static void marcarEntradas(long[] fronteras, int frontera, long ladoA, long ladoB, int longitud) {
+        long abiertas = ladoA & ladoB;
+        long marcas = 0;
+        int k = 0;
+        while (k < longitud) {
+            if ((abiertas >>> k & 1) == 0) {
+                k++;
+                continue;
+            }
+            int inicio = k;
+            while (k < longitud && (abiertas >>> k & 1) != 0) {
+                k++;
+            }
+            int fin = k - 1;
+            marcas |= fin - inicio + 1 >= TRAMO_LARGO ? 1L << inicio | 1L << fin : 1L << ((inicio + fin) >>> 1);
+        }
+        long marcasA = marcas;
+        long marcasB = marcas;
+        
+        // Un paso en diagonal solo hace falta si ninguna de sus dos celdas puede cruzar en recto
+        for (k = 0; k + 1 < longitud; k++) {
+            long a0 = ladoA >>> k & 1;
+            long a1 = ladoA >>> (k + 1) & 1;
+            long b0 = ladoB >>> k & 1;
+            long b1 = ladoB >>> (k + 1) & 1;
+            if ((a0 & b1) == 1 && (b0 | a1) == 0) {
+                marcasA |= 1L << k;
+                marcasB |= 1L << (k + 1);
+            } else if ((a1 & b0) == 1 && (a0 | b1) == 0) {
+                marcasA |= 1L << (k + 1);
+                marcasB |= 1L << k;
+            }
+        }
+        fronteras[2 * frontera] = marcasA;
+        fronteras[2 * frontera + 1] = marcasB;
+    }
+    
+    private int[] calcularNodos(int cluster) {
+        int i = cluster / clustersColumna;
+        int j = cluster % clustersColumna;
+        int fila0 = i * LADO;
+        int columna0 = j * LADO;
+        int ultimaFila = Math.min(filas, fila0 + LADO) - 1;
+        int ultimaColumna = Math.min(columnas, columna0 + LADO) - 1;
+        int[] celdas = new int[4 * LADO + 4];
+        int n = 0;
+        
+        if (j + 1 < clustersColumna) {
+            n = anadirBits(celdas, n, fronterasVerticales[2 * (i * (clustersColumna - 1) + j)], fila0 * columnas + ultimaColumna, columnas);
+        }
+        if (j > 0) {
+            n = anadirBits(celdas, n, fronterasVerticales[2 * (i * (clustersColumna - 1) + j - 1) + 1], fila0 * columnas + columna0, columnas);
+        }
+        if (i + 1 < clustersFila) {
+            n = anadirBits(celdas, n, fronterasHorizontales[2 * (i * clustersColumna + j)], ultimaFila * columnas + columna0, 1);
+        }
+        if (i > 0) {
+            n = anadirBits(celdas, n, fronterasHorizontales[2 * ((i - 1) * clustersColumna + j) + 1], fila0 * columnas + columna0, 1);
+        }
+        
+        // Cada esquina interior aporta como mucho una celda a cada uno de sus cuatro clusters
+        int esquinasColumna = clustersColumna - 1;
+        if (i + 1 < clustersFila && j + 1 < clustersColumna && (esquinas[i * esquinasColumna + j] & 1) != 0) {
+            celdas[n++] = ultimaFila * columnas + ultimaColumna;
+        }
+        if (i + 1 < clustersFila && j > 0 && (esquinas[i * esquinasColumna + j - 1] & 2) != 0) {
+            celdas[n++] = ultimaFila * columnas + columna0;
+        }
+        if (i > 0 && j + 1 < clustersColumna && (esquinas[(i - 1) * esquinasColumna + j] & 2) != 0) {
+            celdas[n++] = fila0 * columnas + ultimaColumna;
+        }
+        if (i > 0 && j > 0 && (esquinas[(i - 1) * esquinasColumna + j - 1] & 1) != 0) {
+            celdas[n++] = fila0 * columnas + columna0;
+        }
+        
+        Arrays.sort(celdas, 0, n);
+        int distintas = 0;
+        for (int k = 0; k < n; k++) {
+            if (distintas == 0 || celdas[k] != celdas[distintas - 1]) {
+                celdas[distintas++] = celdas[k];
+            }
+        }
+        return Arrays.copyOf(celdas, distintas);
+    }
+    
+    private static int anadirBits(int[] celdas, int n, long bits, int primera, int paso) {
+        for (; bits != 0; bits &= bits - 1) {
+            celdas[n++] = primera + Long.numberOfTrailingZeros(bits) * paso;
+        }
+        return n;
+    }
+    
+    private void calcularCluster(int cluster, int[] entradas, BusquedaLocal busqueda) {
+        int k = entradas.length;
+        int[] tabla = new int[k * k];
+        if (sinObstaculos(cluster)) {
+            // Rectángulo despejado: la distancia con 8 direcciones es la de Chebyshev
+            for (int a = 0; a < k; a++) {
+                for (int b = 0; b < k; b++) {
+                    tabla[a * k + b] = Math.max(Math.abs(entradas[a] / columnas - entradas[b] / columnas),
+                                                Math.abs(entradas[a] % columnas - entradas[b] % columnas));
+                }
+            }
+        } else {
+            busqueda.cargar(cluster);
+            for (int a = 0; a < k; a++) {
+                busqueda.recorrer(entradas[a]);
+                for (int b = 0; b < k; b++) {
+                    tabla[a * k + b] = busqueda.distanciaA(entradas[b]);
+                }
+            }
+        }
+        int[] posiciones = new int[2 * k];
+        for (int a = 0; a < k; a++) {
+            posiciones[2 * a] = entradas[a] / columnas;
+            posiciones[2 * a + 1] = entradas[a] % columnas;
+        }
+        nodos[cluster] = entradas;
+        distancias[cluster] = tabla;
+        coordenadas[cluster] = posiciones;
+    }
+    
+    // Necesita las entradas ya calculadas del cluster y de sus ocho vecinos
+    private void calcularEnlaces(int cluster) {
+        int[] entradas = nodos[cluster];
+        int[] posiciones = coordenadas[cluster];
+        int i = cluster / clustersColumna;
+        int j = cluster % clustersColumna;
+        int[] tabla = new int[entradas.length + 1 + 8 * entradas.length];
+        int n = entradas.length + 1;
+        for (int a = 0; a < entradas.length; a++) {
+            tabla[a] = n;
+            for (int d = 0; d < 8; d++) {
+                int f = posiciones[2 * a] + Posicion.DESPLAZAMIENTO_FILA[d];
+                int c = posiciones[2 * a + 1] + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+                if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                    continue;
+                }
+                int direccion = direccionCluster(f / LADO - i, c / LADO - j);
+                if (direccion < 0) {
+                    continue; // Mismo cluster
+                }
+                int entrada = Arrays.binarySearch(nodos[cluster + desplazamientoCluster[direccion]], f * columnas + c);
+                if (entrada >= 0) {
+                    tabla[n++] = direccion << 8 | entrada;
+                }
+            }
+        }
+        tabla[entradas.length] = n;
+        enlaces[cluster] = Arrays.copyOf(tabla, n);
+    }
+    
+    private static int direccionCluster(int filas, int columnas) {
+        for (int d = 0; d < 8; d++) {
+            if (Posicion.DESPLAZAMIENTO_FILA[d] == filas && Posicion.DESPLAZAMIENTO_COLUMNA[d] == columnas) {
+                return d;
+            }
+        }
+        return -1;
+    }
+    
+    private boolean sinObstaculos(int cluster) {
+        int fila0 = cluster / clustersColumna * LADO;
+        int columna0 = cluster % clustersColumna * LADO;
+        int ultimaFila = Math.min(filas, fila0 + LADO);
+        int ultimaColumna = Math.min(columnas, columna0 + LADO);
+        for (int f = fila0; f < ultimaFila; f++) {
+            for (int c = columna0; c < ultimaColumna; c++) {
+                if (!mundo.esAccesible(f * columnas + c)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private boolean buscar(int origen, int destino) {
+        asegurarValido();
+        if (!mundo.esAccesible(origen) || !mundo.esAccesible(destino)) {
+            return false;
+        }
+        reservarBusqueda();
+        nuevaGeneracion();
+        tamanoMonticulo = 0;
+        int meta = totalIds;
+        int filaDestino = destino / columnas;
+        int columnaDestino = destino % columnas;
+        int clusterOrigen = clusterDe(origen);
+        int clusterDestino = clusterDe(destino);
+        
+        // El destino se enlaza con las entradas de su cluster y el origen con las del suyo
+        int[] entradasDestino = nodos[clusterDestino];
+        if (distanciaDestino.length < entradasDestino.length) {
+            distanciaDestino = new int[entradasDestino.length];
+        }
+        local.recorrer(clusterDestino, destino);
+        for (int k = 0; k < entradasDestino.length; k++) {
+            distanciaDestino[k] = local.distanciaA(entradasDestino[k]);
+        }
+        if (clusterOrigen == clusterDestino && local.distanciaA(origen) != INALCANZABLE) {
+            relajar(meta, clusterDestino, destino, local.distanciaA(origen), SIN_PADRE, 0);
+        }
+        local.recorrer(clusterOrigen, origen);
+        int[] entradasOrigen = nodos[clusterOrigen];
+        for (int k = 0; k < entradasOrigen.length; k++) {
+            int d = local.distanciaA(entradasOrigen[k]);
+            if (d != INALCANZABLE) {
+                relajar(base[clusterOrigen] + k, clusterOrigen, entradasOrigen[k], d,
+                        SIN_PADRE, heuristica(clusterOrigen, k, filaDestino, columnaDestino));
+            }
+        }
+        
+        while (tamanoMonticulo > 0) {
+            int id = (int) extraerMinimo();
+            if (cerrada[id] == generacion) {
+                continue;
+            }
+            cerrada[id] = generacion;
+            if (id == meta) {
+                return true;
+            }
+            
+            int cluster = clusterId[id];
+            int k = id - base[cluster];
+            int[] entradas = nodos[cluster];
+            int[] tabla = distancias[cluster];
+            int g = coste[id];
+            for (int otra = 0; otra < entradas.length; otra++) {
+                int d = tabla[k * entradas.length + otra];
+                if (otra != k && d != INALCANZABLE) {
+                    relajar(base[cluster] + otra, cluster, entradas[otra], g + d, id,
+                            heuristica(cluster, otra, filaDestino, columnaDestino));
+                }
+            }
+            if (cluster == clusterDestino && distanciaDestino[k] != INALCANZABLE) {
+                relajar(meta, cluster, destino, g + distanciaDestino[k], id, 0);
+            }
+            
+            // Cruces de frontera hacia entradas de los clusters vecinos
+            int[] cruces = enlaces[cluster];
+            for (int e = cruces[k]; e < cruces[k + 1]; e++) {
+                int otroCluster = cluster + desplazamientoCluster[cruces[e] >>> 8];
+                int entrada = cruces[e] & 0xFF;
+                relajar(base[otroCluster] + entrada, otroCluster, nodos[otroCluster][entrada], g + 1, id,
+                        heuristica(otroCluster, entrada, filaDestino, columnaDestino));
+            }
+        }
+        return false;
+    }
+    
+    private void relajar(int id, int cluster, int celdaId, int nuevoCoste, int padreId, int heuristica) {
+        if (cerrada[id] == generacion) {
+            return;
+        }
+        if (visitada[id] != generacion || nuevoCoste < coste[id]) {
+            visitada[id] = generacion;
+            coste[id] = nuevoCoste;
+            padre[id] = padreId;
+            celda[id] = celdaId;
+            clusterId[id] = cluster;
+            // Heurística inflada 1/8: muchas menos expansiones a cambio de rutas algo más largas
+            insertar(nuevoCoste + heuristica + (heuristica >> 3), id);
+        }
+    }
+    
+    private int heuristica(int cluster, int entrada, int filaDestino, int columnaDestino) {
+        int[] posiciones = coordenadas[cluster];
+        return Math.max(Math.abs(posiciones[2 * entrada] - filaDestino), Math.abs(posiciones[2 * entrada + 1] - columnaDestino));
+    }
+    
+    private void reservarBusqueda() {
+        if (coste.length <= totalIds) {
+            int tamano = totalIds + 1 + totalIds / 8;
+            coste = new int[tamano];
+            padre = new int[tamano];
+            celda = new int[tamano];
+            clusterId = new int[tamano];
+            visitada = new int[tamano];
+            cerrada = new int[tamano];
+            generacion = 0;
+        }
+    }
+    
+    private void nuevaGeneracion() {
+        generacion++;
+        if (generacion == Integer.MAX_VALUE) {
+            Arrays.fill(visitada, 0);
+            Arrays.fill(cerrada, 0);
+            generacion = 1;
+        }
+    }
+    
+    // Montículo binario de mínimos; cada entrada empaqueta la prioridad (32 bits altos) y el id
+    private void insertar(int prioridad, int id) {
+        if (tamanoMonticulo == monticulo.length) {
+            monticulo = Arrays.copyOf(monticulo, tamanoMonticulo * 2);
+        }
+        long entrada = ((long) prioridad << 32) | id;
+        int i = tamanoMonticulo++;
+        while (i > 0) {
+            int padreMonticulo = (i - 1) >>> 1;
+            if (monticulo[padreMonticulo] <= entrada) {
+                break;
+            }
+            monticulo[i] = monticulo[padreMonticulo];
+            i = padreMonticulo;
+        }
+        monticulo[i] = entrada;
+    }
+    
+    private long extraerMinimo() {
+        long minimo = monticulo[0];
+        long ultimo = monticulo[--tamanoMonticulo];
+        int i = 0;
+        int mitad = tamanoMonticulo >>> 1;
+        while (i < mitad) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < tamanoMonticulo && monticulo[hijo + 1] < monticulo[hijo]) {
+                hijo++;
+            }
+            if (ultimo <= monticulo[hijo]) {
+                break;
+            }
+            monticulo[i] = monticulo[hijo];
+            i = hijo;
+        }
+        monticulo[i] = ultimo;
+        return minimo & 0xFFFFFFFFL;
+    }
+    
+    // BFS que no sale de un cluster. Copia la accesibilidad del cluster en una tabla con un marco de
+    // celdas cerradas alrededor, así los vecinos se recorren sin comprobar los límites
+    private final class BusquedaLocal {
+        private final int[] vecino = {-ANCHO_LOCAL, -ANCHO_LOCAL + 1, 1, ANCHO_LOCAL + 1, ANCHO_LOCAL, ANCHO_LOCAL - 1, -1, -ANCHO_LOCAL - 1};
+        private final boolean[] abierta = new boolean[ANCHO_LOCAL * ANCHO_LOCAL];
+        private final int[] distancia = new int[ANCHO_LOCAL * ANCHO_LOCAL];
+        private final int[] anterior = new int[ANCHO_LOCAL * ANCHO_LOCAL];
+        private final int[] cola = new int[ANCHO_LOCAL * ANCHO_LOCAL];
+        private int fila0;
+        private int columna0;
+        
+        void cargar(int cluster) {
+            fila0 = cluster / clustersColumna * LADO;
+            columna0 = cluster % clustersColumna * LADO;
+            int alto = Math.min(LADO, filas - fila0);
+            int ancho = Math.min(LADO, columnas - columna0);
+            Arrays.fill(abierta, false);
+            for (int f = 0; f < alto; f++) {
+                int fila = (fila0 + f) * columnas + columna0;
+                for (int c = 0; c < ancho; c++) {
+                    abierta[(f + 1) * ANCHO_LOCAL + c + 1] = mundo.esAccesible(fila + c);
+                }
+            }
+        }
+        
+        void recorrer(int origen) {
+            Arrays.fill(distancia, INALCANZABLE);
+            int inicio = local(origen);
+            distancia[inicio] = 0;
+            cola[0] = inicio;
+            int fin = 1;
+            for (int cabeza = 0; cabeza < fin; cabeza++) {
+                int u = cola[cabeza];
+                int siguiente = distancia[u] + 1;
+                for (int d = 0; d < 8; d++) {
+                    int w = u + vecino[d];
+                    if (abierta[w] && distancia[w] == INALCANZABLE) {
+                        distancia[w] = siguiente;
+                        anterior[w] = u;
+                        cola[fin++] = w;
+                    }
+                }
+            }
+        }
+        
+        void recorrer(int cluster, int origen) {
+            cargar(cluster);
+            recorrer(origen);
+        }
+        
+        int distanciaA(int indice) {
+            return distancia[local(indice)];
+        }
+        
+        // Escribe el camino desde el origen del último recorrido hasta 'indice', sin el origen, a
+        // partir de salida[desde]; devuelve la primera posición libre
+        int camino(int indice, int[] salida, int desde) {
+            int u = local(indice);
+            int fin = desde + distancia[u];
+            for (int k = fin - 1; k >= desde; k--) {
+                salida[k] = (fila0 + u / ANCHO_LOCAL - 1) * columnas + columna0 + u % ANCHO_LOCAL - 1;
+                u = anterior[u];
+            }
+            return fin;
+        }
+        
+        private int local(int indice) {
+            return (indice / columnas - fila0 + 1) * ANCHO_LOCAL + indice % columnas - columna0 + 1;
+        }
+    }
+}
\ No newline at end of file
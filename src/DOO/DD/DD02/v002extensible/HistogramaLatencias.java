@@ -0,0 +1,125 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+// Histograma logarítmico-lineal al estilo HDR: cada potencia de dos se divide en 32 subcubetas,
+// así que el error relativo de cualquier valor registrado es menor del 3,2 % y el coste de
+// registrar es constante (sin reservas de memoria). Los valores son nanosegundos.
+//
+// Registrar y reiniciar toman el cerrojo de escritura; copiar lee de forma optimista y repite con el
+// de lectura si coincidió con una escritura. Desde otro hilo solo copiar() da una vista coherente:
+// los demás métodos de consulta son para copias o para el hilo que registra.
+public class HistogramaLatencias {
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int EXPONENTE_MAXIMO = 40; // Unos 18 minutos; los valores mayores se acumulan al final
+    private static final int CUBETAS = SUBCUBETAS * (EXPONENTE_MAXIMO - BITS_SUBCUBETA + 2);
+    
+    private final long[] cuentas = new long[CUBETAS];
+    private long total;
+    private long suma;
+    private long maximo;
+    private final StampedLock cerrojo = new StampedLock();
+    
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        long sello = cerrojo.writeLock();
+        try {
+            cuentas[cubeta(valor)]++;
+            total++;
+            suma += valor;
+            if (valor > maximo) {
+                maximo = valor;
+            }
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+    
+    public long getTotal() {
+        return total;
+    }
+    
+    public long getMaximo() {
+        return maximo;
+    }
+    
+    public double getMedia() {
+        return total == 0 ? 0 : (double) suma / total;
+    }
+    
+    // Valor por debajo del cual queda el porcentaje indicado de las muestras (p. ej. 99.9)
+    public long percentil(double porcentaje) {
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(total * porcentaje / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) {
+                return Math.min(maximo, limiteSuperior(i));
+            }
+        }
+        return maximo;
+    }
+    
+    public HistogramaLatencias copiar() {
+        HistogramaLatencias copia = new HistogramaLatencias();
+        long sello = cerrojo.tryOptimisticRead();
+        copiarEn(copia);
+        if (!cerrojo.validate(sello)) {
+            sello = cerrojo.readLock();
+            try {
+                copiarEn(copia);
+            } finally {
+                cerrojo.unlockRead(sello);
+            }
+        }
+        return copia;
+    }
+    
+    private void copiarEn(HistogramaLatencias copia) {
+        System.arraycopy(cuentas, 0, copia.cuentas, 0, CUBETAS);
+        copia.total = total;
+        copia.suma = suma;
+        copia.maximo = maximo;
+    }
+    
+    public void reiniciar() {
+        long sello = cerrojo.writeLock();
+        try {
+            Arrays.fill(cuentas, 0);
+            total = 0;
+            suma = 0;
+            maximo = 0;
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+    
+    private static int cubeta(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        if (exponente > EXPONENTE_MAXIMO) {
+            return CUBETAS - 1;
+        }
+        int subcubeta = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return SUBCUBETAS * (exponente - BITS_SUBCUBETA + 1) + subcubeta;
+    }
+    
+    private static long limiteSuperior(int cubeta) {
+        if (cubeta < SUBCUBETAS) {
+            return cubeta;
+        }
+        int exponente = cubeta / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        long ancho = 1L << (exponente - BITS_SUBCUBETA);
+        long inferior = (1L << exponente) + (cubeta % SUBCUBETAS) * ancho;
+        return inferior + ancho - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.Arrays;
+
+// Índice de las celdas accesibles y de sus componentes conexas (vecindad de 8 direcciones, la
+// misma que usan los movimientos). Se reconstruye al consultarlo si han cambiado los obstáculos;
+// la suciedad de cada componente se mantiene al día con los avisos de Mundo. Las celdas se
+// guardan en orden de recorrido, así el resultado de un sorteo solo depende del plano.
+class IndiceAccesibles {
+    private final Mundo mundo;
+    private final int filas;
+    private final int columnas;
+    private final int[] componente; // Componente de cada celda, -1 en los obstáculos
+    private final int[] celdas;     // Cola del BFS: al acabar, las celdas accesibles agrupadas por componente
+    private int[] suciedadComponente = new int[16];
+    private int accesibles;
+    private int componentes;
+    private int version;
+    private boolean valido;
+    
+    IndiceAccesibles(Mundo mundo) {
+        this.mundo = mundo;
+        this.filas = mundo.filas;
+        this.columnas = mundo.columnas;
+        this.componente = new int[filas * columnas];
+        this.celdas = new int[filas * columnas];
+    }
+    
+    void invalidar() {
+        valido = false;
+    }
+    
+    void suciedadCambiada(int indice, int diferencia) {
+        if (valido && version == mundo.getVersionObstaculos()) {
+            suciedadComponente[componente[indice]] += diferencia;
+        }
+    }
+    
+    int contarAccesibles() {
+        asegurarValido();
+        return accesibles;
+    }
+    
+    int contarComponentes() {
+        asegurarValido();
+        return componentes;
+    }
+    
+    // Celda accesible uniforme en O(1), o -1 si todo el plano está bloqueado
+    int celdaAlAzar(Aleatorio random) {
+        asegurarValido();
+        return accesibles == 0 ? -1 : celdas[random.nextInt(accesibles)];
+    }
+    
+    int componenteDe(int indice) {
+        asegurarValido();
+        return componente[indice];
+    }
+    
+    int suciedadDeComponente(int indice) {
+        asegurarValido();
+        return componente[indice] < 0 ? 0 : suciedadComponente[componente[indice]];
+    }
+    
+    // BFS por componentes: cada una ocupa un tramo consecutivo de 'celdas'
+    private void asegurarValido() {
+        if (valido && version == mundo.getVersionObstaculos()) {
+            return;
+        }
+        int total = filas * columnas;
+        accesibles = 0;
+        for (int i = 0; i < total; i++) {
+            if (mundo.esAccesible(i)) {
+                componente[i] = Integer.MAX_VALUE; // Accesible y sin visitar
+                accesibles++;
+            } else {
+                componente[i] = -1;
+            }
+        }
+        
+        componentes = 0;
+        int fin = 0;
+        for (int origen = 0; origen < total; origen++) {
+            if (componente[origen] != Integer.MAX_VALUE) {
+                continue;
+            }
+            if (componentes == suciedadComponente.length) {
+                suciedadComponente = Arrays.copyOf(suciedadComponente, componentes * 2);
+            }
+            int etiqueta = componentes++;
+            int suciedad = 0;
+            componente[origen] = etiqueta;
+            celdas[fin++] = origen;
+            for (int cabeza = fin - 1; cabeza < fin; cabeza++) {
+                int u = celdas[cabeza];
+                byte codigo = mundo.getCodigo(u);
+                if (Mundo.tipoDe(codigo) == Mundo.TIPO_SUCIA) {
+                    suciedad += Mundo.datoDe(codigo);
+                }
+                int fu = u / columnas;
+                int cu = u % columnas;
+                for (int d = 0; d < 8; d++) {
+                    int f = fu + Posicion.DESPLAZAMIENTO_FILA[d];
+                    int c = cu + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+                    if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                        continue;
+                    }
+                    int w = f * columnas + c;
+                    if (componente[w] == Integer.MAX_VALUE) {
+                        componente[w] = etiqueta;
+                        celdas[fin++] = w;
+                    }
+                }
+            }
+            suciedadComponente[etiqueta] = suciedad;
+        }
+        version = mundo.getVersionObstaculos();
+        valido = true;
+    }
+}
\ No newline at end of file
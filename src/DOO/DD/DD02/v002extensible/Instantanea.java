@@ -0,0 +1,122 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Instantánea binaria de una simulación completa, escrita y leída mediante ficheros mapeados en memoria.
+//
+// Formato (big endian):
+//   int magia, int versión, int filas, int columnas, byte opciones, int parámetros[6], int bytesEstado
+//   estado de la simulación (turno, modos, gato, aspiradora, ruta pendiente, RNG, cubetas de suciedad)
+//   filas * columnas bytes con los códigos de celda
+public final class Instantanea {
+    private static final int MAGIA = 0x44443032; // "DD02"
+    private static final int VERSION = 2; // La 2 guarda los parámetros de limpieza
+    private static final int BYTES_CABECERA = 4 + 4 + 4 + 4 + 1 + 4 * ParametrosLimpieza.Parametro.values().length + 4;
+    private static final int OPCION_POR_BLOQUES = 1;
+    private static final int OPCION_POR_CERCANIA = 2;
+    private static final int OPCION_CON_RECORRIDO = 4;
+    private static final int OPCION_RUTAS_JERARQUICAS = 8;
+    private static final int TAMANO_REGION = 1 << 30; // Un MappedByteBuffer no puede pasar de 2 GB
+    
+    private Instantanea() {
+    }
+    
+    public static void guardar(Simulacion simulacion, Path ruta) throws IOException {
+        Mundo mundo = simulacion.getMundo();
+        int bytesEstado = simulacion.bytesEstado();
+        long inicioCeldas = BYTES_CABECERA + (long) bytesEstado;
+        long totalCeldas = (long) mundo.filas * mundo.columnas;
+        
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                  StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_WRITE, 0, inicioCeldas);
+            cabecera.putInt(MAGIA);
+            cabecera.putInt(VERSION);
+            cabecera.putInt(mundo.filas);
+            cabecera.putInt(mundo.columnas);
+            cabecera.put(opciones(simulacion.getConfiguracion()));
+            for (ParametrosLimpieza.Parametro parametro : ParametrosLimpieza.Parametro.values()) {
+                cabecera.putInt(parametro.leer(simulacion.getConfiguracion().getParametros()));
+            }
+            cabecera.putInt(bytesEstado);
+            simulacion.guardarEstado(cabecera);
+            
+            for (long desde = 0; desde < totalCeldas; desde += TAMANO_REGION) {
+                int cantidad = (int) Math.min(TAMANO_REGION, totalCeldas - desde);
+                MappedByteBuffer region = canal.map(FileChannel.MapMode.READ_WRITE, inicioCeldas + desde, cantidad);
+                mundo.exportarCeldas(region, (int) desde, cantidad);
+            }
+        }
+    }
+    
+    public static Simulacion cargar(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            MappedByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, BYTES_CABECERA);
+            if (cabecera.getInt() != MAGIA) {
+                throw new IOException("El fichero no es una instantánea de la simulación: " + ruta);
+            }
+            int version = cabecera.getInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de instantánea no soportada: " + version);
+            }
+            int filas = cabecera.getInt();
+            int columnas = cabecera.getInt();
+            byte opciones = cabecera.get();
+            ParametrosLimpieza parametros = new ParametrosLimpieza();
+            for (ParametrosLimpieza.Parametro parametro : ParametrosLimpieza.Parametro.values()) {
+                parametro.escribir(parametros, cabecera.getInt());
+            }
+            int bytesEstado = cabecera.getInt();
+            
+            Simulacion simulacion = new Simulacion(conOpciones(new ConfiguracionSimulacion()
+                                                               .conTamano(filas, columnas)
+                                                               .conParametros(parametros), opciones));
+            Mundo mundo = simulacion.getMundo();
+            long inicioCeldas = BYTES_CABECERA + (long) bytesEstado;
+            long totalCeldas = (long) filas * columnas;
+            for (long desde = 0; desde < totalCeldas; desde += TAMANO_REGION) {
+                int cantidad = (int) Math.min(TAMANO_REGION, totalCeldas - desde);
+                MappedByteBuffer region = canal.map(FileChannel.MapMode.READ_ONLY, inicioCeldas + desde, cantidad);
+                mundo.importarCeldas(region, (int) desde, cantidad);
+            }
+            
+            simulacion.restaurarEstado(canal.map(FileChannel.MapMode.READ_ONLY, BYTES_CABECERA, bytesEstado));
+            return simulacion;
+        }
+    }
+    
+    static byte opciones(ConfiguracionSimulacion configuracion) {
+        int opciones = 0;
+        if (configuracion.isMundoPorBloques()) {
+            opciones |= OPCION_POR_BLOQUES;
+        }
+        if (configuracion.isPorCercania()) {
+            opciones |= OPCION_POR_CERCANIA;
+        }
+        if (configuracion.isConRecorrido()) {
+            opciones |= OPCION_CON_RECORRIDO;
+        }
+        if (configuracion.isRutasJerarquicas()) {
+            opciones |= OPCION_RUTAS_JERARQUICAS;
+        }
+        return (byte) opciones;
+    }
+    
+    static ConfiguracionSimulacion conOpciones(ConfiguracionSimulacion configuracion, byte opciones) {
+        return configuracion.porBloques((opciones & OPCION_POR_BLOQUES) != 0)
+                            .porCercania((opciones & OPCION_POR_CERCANIA) != 0)
+                            .conRecorrido((opciones & OPCION_CON_RECORRIDO) != 0)
+                            .conRutasJerarquicas((opciones & OPCION_RUTAS_JERARQUICAS) != 0);
+    }
+    
+    // Carga la instantánea y cambia su semilla para explorar un futuro alternativo desde el mismo punto
+    public static Simulacion bifurcar(Path ruta, long semilla) throws IOException {
+        Simulacion simulacion = cargar(ruta);
+        simulacion.resembrar(semilla);
+        return simulacion;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,203 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Métricas de una simulación: contadores de pasos, celdas limpiadas, gatos y movimientos
+// bloqueados, e histogramas de latencia de turno, movimiento y planificador.
+//
+// Los contadores no cuestan nada durante la simulación: se leen de la propia simulación al
+// pedir un resumen. Las latencias solo se miden en uno de cada "muestreo" turnos para que
+// System.nanoTime no pese en el total. El hilo de la simulación registra; JMX y los resúmenes
+// periódicos leen copias coherentes de los histogramas, y reiniciar desde JMX se serializa con los
+// registros en el cerrojo de cada histograma. Los contadores pueden ser de hace unos instantes.
+public class Instrumentacion implements InstrumentacionMBean {
+    private final int muestreo;
+    private final int mascaraMuestreo;
+    private Simulacion simulacion;
+    
+    private final HistogramaLatencias latenciaTurno = new HistogramaLatencias();
+    private final HistogramaLatencias latenciaMovimiento = new HistogramaLatencias();
+    private final HistogramaLatencias latenciaPlanificador = new HistogramaLatencias();
+    private boolean midiendo;
+    
+    private ScheduledExecutorService programador;
+    private ObjectName nombreJmx;
+    
+    public Instrumentacion() {
+        this(64);
+    }
+    
+    public Instrumentacion(int muestreo) {
+        if (muestreo <= 0 || Integer.bitCount(muestreo) != 1) {
+            throw new IllegalArgumentException("El muestreo debe ser una potencia de dos: " + muestreo);
+        }
+        this.muestreo = muestreo;
+        this.mascaraMuestreo = muestreo - 1;
+    }
+    
+    void conectar(Simulacion simulacion) {
+        this.simulacion = simulacion;
+    }
+    
+    // Devuelve el instante de inicio si este turno se mide, o 0 si no
+    long iniciarTurno(int turno) {
+        if ((turno & mascaraMuestreo) != 0) {
+            return 0;
+        }
+        midiendo = true;
+        return System.nanoTime();
+    }
+    
+    boolean midiendo() {
+        return midiendo;
+    }
+    
+    void registrarMovimiento(long nanos) {
+        latenciaMovimiento.registrar(nanos);
+    }
+    
+    void registrarPlanificacion(long nanos) {
+        latenciaPlanificador.registrar(nanos);
+    }
+    
+    void finalizarTurno(long inicio) {
+        latenciaTurno.registrar(System.nanoTime() - inicio);
+        midiendo = false;
+    }
+    
+    // Detiene los resúmenes periódicos y retira el MBean
+    public void cerrar() {
+        detenerResumenes();
+        if (nombreJmx != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(nombreJmx);
+            } catch (JMException e) {
+                // Ya no estaba registrado
+            }
+            nombreJmx = null;
+        }
+    }
+    
+    public ResumenMetricas tomarResumen() {
+        return new ResumenMetricas(System.nanoTime(), getTurnos(), getPasos(), getCeldasLimpiadas(),
+                                   getGatosAparecidos(), getMovimientosBloqueados(), latenciaTurno.copiar(),
+                                   latenciaMovimiento.copiar(), latenciaPlanificador.copiar());
+    }
+    
+    // Entrega un resumen cada periodo desde un hilo demonio hasta que se cierre la instrumentación
+    public void iniciarResumenes(long periodo, TimeUnit unidad, Consumer<ResumenMetricas> consumidor) {
+        detenerResumenes();
+        programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "resumenes-simulacion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleAtFixedRate(() -> consumidor.accept(tomarResumen()), periodo, periodo, unidad);
+    }
+    
+    public void detenerResumenes() {
+        if (programador != null) {
+            programador.shutdownNow();
+            programador = null;
+        }
+    }
+    
+    // Publica las métricas en el servidor MBean de la plataforma (jconsole, VisualVM, etc.)
+    public void registrarJmx(String nombre) {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objeto = new ObjectName("DOO.DD.DD02:type=Simulacion,name=" + ObjectName.quote(nombre));
+            servidor.registerMBean(this, objeto);
+            nombreJmx = objeto;
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudo registrar la instrumentación en JMX: " + nombre, e);
+        }
+    }
+    
+    @Override
+    public long getTurnos() {
+        return simulacion == null ? 0 : simulacion.getTurno();
+    }
+    
+    @Override
+    public long getPasos() {
+        Aspiradora aspiradora = aspiradora();
+        return aspiradora == null ? 0 : aspiradora.getPasos();
+    }
+    
+    @Override
+    public long getCeldasLimpiadas() {
+        Aspiradora aspiradora = aspiradora();
+        return aspiradora == null ? 0 : aspiradora.getCeldasLimpiadas();
+    }
+    
+    @Override
+    public long getGatosAparecidos() {
+        return simulacion == null ? 0 : simulacion.getGatosAparecidos();
+    }
+    
+    @Override
+    public long getMovimientosBloqueados() {
+        Aspiradora aspiradora = aspiradora();
+        return aspiradora == null ? 0 : aspiradora.getMovimientosBloqueados();
+    }
+    
+    @Override
+    public int getMuestreo() {
+        return muestreo;
+    }
+    
+    @Override
+    public long getLatenciaTurnoP50() {
+        return latenciaTurno.copiar().percentil(50);
+    }
+    
+    @Override
+    public long getLatenciaTurnoP99() {
+        return latenciaTurno.copiar().percentil(99);
+    }
+    
+    @Override
+    public long getLatenciaTurnoMaxima() {
+        return latenciaTurno.copiar().getMaximo();
+    }
+    
+    @Override
+    public long getLatenciaMovimientoP50() {
+        return latenciaMovimiento.copiar().percentil(50);
+    }
+    
+    @Override
+    public long getLatenciaMovimientoP99() {
+        return latenciaMovimiento.copiar().percentil(99);
+    }
+    
+    @Override
+    public long getLatenciaPlanificadorP50() {
+        return latenciaPlanificador.copiar().percentil(50);
+    }
+    
+    @Override
+    public long getLatenciaPlanificadorP99() {
+        return latenciaPlanificador.copiar().percentil(99);
+    }
+    
+    private Aspiradora aspiradora() {
+        return simulacion == null ? null : simulacion.getAspiradora();
+    }
+    
+    // Solo reinicia las latencias: los contadores son totales acumulados de la simulación
+    @Override
+    public void reiniciar() {
+        latenciaTurno.reiniciar();
+        latenciaMovimiento.reiniciar();
+        latenciaPlanificador.reiniciar();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package DOO.DD.DD02.v002extensible;
+
+// Interfaz JMX de Instrumentacion (MBean estándar); las latencias están en nanosegundos
+public interface InstrumentacionMBean {
+    long getTurnos();
+    
+    long getPasos();
+    
+    long getCeldasLimpiadas();
+    
+    long getGatosAparecidos();
+    
+    long getMovimientosBloqueados();
+    
+    int getMuestreo();
+    
+    long getLatenciaTurnoP50();
+    
+    long getLatenciaTurnoP99();
+    
+    long getLatenciaTurnoMaxima();
+    
+    long getLatenciaMovimientoP50();
+    
+    long getLatenciaMovimientoP99();
+    
+    long getLatenciaPlanificadorP50();
+    
+    long getLatenciaPlanificadorP99();
+    
+    void reiniciar();
+}
\ No newline at end of file
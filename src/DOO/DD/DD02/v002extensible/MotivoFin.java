@@ -0,0 +1,10 @@
+package DOO.DD.DD02.v002extensible;
+
+public enum MotivoFin {
+    LIMPIO,
+    SUCIEDAD_INALCANZABLE, // Solo queda suciedad en zonas a las que la aspiradora no puede llegar
+    ATRAPADA,              // Ningún vecino de la aspiradora es accesible
+    SIN_BATERIA,
+    BOLSA_LLENA,
+    LIMITE_TURNOS
+}
\ No newline at end of file
@@ -1,65 +1,480 @@
 package DOO.DD.DD02.v002extensible;
 
-import java.util.Random;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 public class Mundo {
-    private Celda[][] celdas;
+    // Cada celda ocupa un byte: bits 0-2 tipo de celda, bits 3-5 nivel de suciedad o tipo de obstáculo
+    static final int TIPO_LIMPIA = 0;
+    static final int TIPO_SUCIA = 1;
+    static final int TIPO_OBSTACULO = 2;
+    static final int TIPO_CARGADOR = 3;
+    static final int TIPO_VACIADO = 4;
+    
+    static final int OBSTACULO_GENERICO = 0;
+    static final int OBSTACULO_SOFA = 1;
+    static final int OBSTACULO_PARED = 2;
+    
+    static final int NIVEL_MAXIMO = 4;
+    
+    private static final int MASCARA_TIPO = 0x07;
+    private static final int DESPLAZAMIENTO_DATO = 3;
+    
+    // La generación reparte el mundo en franjas de filas alineadas con los bloques de RejillaPorBloques,
+    // de modo que dos franjas nunca escriben en el mismo bloque
+    private static final int FILAS_FRANJA = RejillaPorBloques.LADO_BLOQUE;
+    
+    // Sorteos directos antes de recurrir al índice de celdas accesibles
+    private static final int INTENTOS_AL_AZAR = 8;
+    
+    private final Rejilla rejilla;
+    private final boolean porBloques;
     public final int filas;
     public final int columnas;
-    private Random random;
+    private Aleatorio random;
+    private int suciedadTotal;
+    private int versionObstaculos; // Cambia cada vez que aparece o desaparece un obstáculo
+    private int versionEstaciones; // Cambia con los obstáculos y con cada estación nueva o retirada
+    private int versionCeldas; // Cambia con cualquier escritura en la rejilla
+    
+    // Índice de celdas sucias por nivel: cubetas[n] guarda los índices de las celdas con nivel n, sin
+    // orden (quitar una celda mueve la última a su ranura)
+    private final int[][] cubetas;
+    private final int[] tamanoCubetas;
+    private CriterioDesempate criterioDesempate;
+    
+    // Vistas ligeras reutilizadas por getCelda, una por tipo de celda
+    private final CeldaLimpia vistaLimpia;
+    private final CeldaSucia vistaSucia;
+    private final CeldaObstaculo vistaObstaculo;
+    private final CeldaCargador vistaCargador;
+    private final CeldaVaciado vistaVaciado;
+    private Renderizador renderizador;
+    private CampoDistancias campoDistancias; // Solo se crea si alguna estrategia lo pide
+    private CampoDistancias campoCargadores;
+    private CampoDistancias campoVaciados;
+    private IndiceAccesibles indiceAccesibles; // Se crea con la primera consulta
+    private VecinosAbiertos vecinosAbiertos;
+    private GrafoJerarquico grafoJerarquico;   // Si existe, las rutas de A* se buscan sobre él
     
     public Mundo(int filas, int columnas) {
+        this(filas, columnas, new Aleatorio());
+    }
+    
+    public Mundo(int filas, int columnas, Aleatorio random) {
+        this(filas, columnas, random, new RejillaDensa(filas * columnas));
+    }
+    
+    // Mundo para planos muy grandes: los bloques de celdas se reservan al ensuciarse por primera vez
+    public static Mundo porBloques(int filas, int columnas, Aleatorio random) {
+        return new Mundo(filas, columnas, random, new RejillaPorBloques(filas, columnas));
+    }
+    
+    private Mundo(int filas, int columnas, Aleatorio random, Rejilla rejilla) {
         this.filas = filas;
         this.columnas = columnas;
-        this.celdas = new Celda[filas][columnas];
-        this.random = new Random();
+        this.rejilla = rejilla;
+        this.porBloques = rejilla instanceof RejillaPorBloques;
+        this.random = random;
+        this.cubetas = new int[NIVEL_MAXIMO + 1][];
+        this.tamanoCubetas = new int[NIVEL_MAXIMO + 1];
+        for (int nivel = 1; nivel <= NIVEL_MAXIMO; nivel++) {
+            cubetas[nivel] = new int[16];
+        }
+        this.criterioDesempate = CriterioDesempate.PRIMERO;
+        this.vistaLimpia = new CeldaLimpia(this);
+        this.vistaSucia = new CeldaSucia(this);
+        this.vistaObstaculo = new CeldaObstaculo(this);
+        this.vistaCargador = new CeldaCargador(this);
+        this.vistaVaciado = new CeldaVaciado(this);
+    }
+    
+    static byte codificar(int tipo, int dato) {
+        return (byte) (tipo | (dato << DESPLAZAMIENTO_DATO));
+    }
+    
+    static int tipoDe(byte codigo) {
+        return codigo & MASCARA_TIPO;
+    }
+    
+    static int datoDe(byte codigo) {
+        return (codigo & 0xFF) >>> DESPLAZAMIENTO_DATO;
+    }
+    
+    static int codigoObstaculo(String tipo) {
+        if ("sofa".equals(tipo)) {
+            return OBSTACULO_SOFA;
+        } else if ("pared".equals(tipo)) {
+            return OBSTACULO_PARED;
+        }
+        return OBSTACULO_GENERICO;
+    }
+    
+    static String nombreObstaculo(int codigo) {
+        switch (codigo) {
+            case OBSTACULO_SOFA: return "sofa";
+            case OBSTACULO_PARED: return "pared";
+            default: return "generico";
+        }
+    }
+    
+    private int indice(int fila, int columna) {
+        return fila * columnas + columna;
+    }
+    
+    private static boolean esEstacion(byte codigo) {
+        int tipo = tipoDe(codigo);
+        return tipo == TIPO_CARGADOR || tipo == TIPO_VACIADO;
+    }
+    
+    private static int suciedadDe(byte codigo) {
+        return tipoDe(codigo) == TIPO_SUCIA ? datoDe(codigo) : 0;
+    }
+    
+    // Único punto de escritura de la rejilla: mantiene actualizados el total de suciedad y las cubetas
+    private void escribir(int indice, byte codigo) {
+        byte anterior = rejilla.leer(indice);
+        int nivelAnterior = suciedadDe(anterior);
+        int nivelNuevo = suciedadDe(codigo);
+        suciedadTotal += nivelNuevo - nivelAnterior;
+        boolean cambiaObstaculo = (tipoDe(anterior) == TIPO_OBSTACULO) != (tipoDe(codigo) == TIPO_OBSTACULO);
+        if (cambiaObstaculo) {
+            versionObstaculos++;
+            versionEstaciones++;
+        } else if ((esEstacion(anterior) || esEstacion(codigo)) && tipoDe(anterior) != tipoDe(codigo)) {
+            versionEstaciones++;
+        }
+        rejilla.escribir(indice, codigo);
+        versionCeldas++;
+        if (cambiaObstaculo && vecinosAbiertos != null) {
+            vecinosAbiertos.obstaculoCambiado(indice, tipoDe(codigo) != TIPO_OBSTACULO);
+        }
+        if (cambiaObstaculo && grafoJerarquico != null) {
+            grafoJerarquico.obstaculoCambiado(indice);
+        }
+        
+        // Con obstáculos nuevos el campo se reconstruye entero en la siguiente consulta
+        if (campoDistancias != null && !cambiaObstaculo && (nivelAnterior > 0) != (nivelNuevo > 0)) {
+            if (nivelNuevo > 0) {
+                campoDistancias.suciedadAnadida(indice);
+            } else {
+                campoDistancias.suciedadEliminada(indice);
+            }
+        }
         
-        for (int i = 0; i < filas; i++) {
-            for (int j = 0; j < columnas; j++) {
-                celdas[i][j] = new CeldaLimpia(i, j);
+        if (nivelAnterior != nivelNuevo) {
+            if (indiceAccesibles != null) {
+                indiceAccesibles.suciedadCambiada(indice, nivelNuevo - nivelAnterior);
+            }
+            if (nivelAnterior > 0) {
+                quitarDeCubeta(indice, nivelAnterior);
+            }
+            if (nivelNuevo > 0) {
+                anadirACubeta(indice, nivelNuevo);
             }
         }
     }
     
+    private void anadirACubeta(int indice, int nivel) {
+        int[] cubeta = cubetas[nivel];
+        int tamano = tamanoCubetas[nivel];
+        if (tamano == cubeta.length) {
+            cubeta = Arrays.copyOf(cubeta, tamano * 2);
+            cubetas[nivel] = cubeta;
+        }
+        cubeta[tamano] = indice;
+        rejilla.escribirRanura(indice, tamano);
+        tamanoCubetas[nivel] = tamano + 1;
+    }
+    
+    private void quitarDeCubeta(int indice, int nivel) {
+        int[] cubeta = cubetas[nivel];
+        int ultimo = --tamanoCubetas[nivel];
+        int ranura = rejilla.leerRanura(indice);
+        // Se mueve el último elemento al hueco para borrar en O(1)
+        int desplazado = cubeta[ultimo];
+        cubeta[ranura] = desplazado;
+        rejilla.escribirRanura(desplazado, ranura);
+    }
+    
+    // Ensucia exactamente el porcentaje pedido de celdas, elegidas sin repetición entre las limpias
     public void generarSuciedad(int porcentajeSucio) {
-        int totalCeldas = filas * columnas;
-        int celdasSucias = (int) (totalCeldas * porcentajeSucio / 100.0);
+        int franjas = (filas + FILAS_FRANJA - 1) / FILAS_FRANJA;
+        int[] libres = new int[franjas];
+        enParalelo(franjas, f -> libres[f] = contarLimpias(f));
+        int[] cupos = repartir(libres, (long) filas * columnas * porcentajeSucio / 100);
+        Aleatorio[] flujos = dividirFlujos(franjas);
+        
+        long[][] elegidas = new long[franjas][];
+        int[][] porNivel = new int[franjas][NIVEL_MAXIMO + 1];
+        enParalelo(franjas, f -> {
+            Aleatorio flujo = flujos[f];
+            elegidas[f] = elegirEnFranja(f, libres[f], cupos[f], flujo);
+            int inicio = f * FILAS_FRANJA * columnas;
+            for (int palabra = 0; palabra < elegidas[f].length; palabra++) {
+                for (long bits = elegidas[f][palabra]; bits != 0; bits &= bits - 1) {
+                    int nivelSuciedad = flujo.nextInt(4) + 1; // Nivel 1-4
+                    rejilla.escribir(inicio + (palabra << 6) + Long.numberOfTrailingZeros(bits),
+                                     codificar(TIPO_SUCIA, nivelSuciedad));
+                    porNivel[f][nivelSuciedad]++;
+                }
+            }
+        });
         
-        for (int i = 0; i < celdasSucias; i++) {
-            int fila = random.nextInt(filas);
-            int columna = random.nextInt(columnas);
-            int nivelSuciedad = random.nextInt(4) + 1; // Nivel 1-4
-            
-            if (!(celdas[fila][columna] instanceof CeldaObstaculo)) {
-                celdas[fila][columna] = new CeldaSucia(fila, columna, nivelSuciedad);
+        // Cada franja rellena su propio tramo de cada cubeta, en el orden de las franjas
+        int[][] tramos = new int[franjas][NIVEL_MAXIMO + 1];
+        for (int nivel = 1; nivel <= NIVEL_MAXIMO; nivel++) {
+            int tamano = tamanoCubetas[nivel];
+            for (int f = 0; f < franjas; f++) {
+                tramos[f][nivel] = tamano;
+                tamano += porNivel[f][nivel];
+            }
+            if (cubetas[nivel].length < tamano) {
+                cubetas[nivel] = Arrays.copyOf(cubetas[nivel], tamano);
             }
+            suciedadTotal += nivel * (tamano - tamanoCubetas[nivel]);
+            tamanoCubetas[nivel] = tamano;
+        }
+        enParalelo(franjas, f -> {
+            int inicio = f * FILAS_FRANJA * columnas;
+            int[] siguiente = tramos[f];
+            for (int palabra = 0; palabra < elegidas[f].length; palabra++) {
+                for (long bits = elegidas[f][palabra]; bits != 0; bits &= bits - 1) {
+                    int i = inicio + (palabra << 6) + Long.numberOfTrailingZeros(bits);
+                    int nivel = datoDe(rejilla.leer(i));
+                    cubetas[nivel][siguiente[nivel]] = i;
+                    rejilla.escribirRanura(i, siguiente[nivel]++);
+                }
+            }
+        });
+        
+        versionCeldas++;
+        if (campoDistancias != null) {
+            campoDistancias.invalidar();
+        }
+        if (indiceAccesibles != null) {
+            indiceAccesibles.invalidar();
         }
     }
     
+    // Coloca exactamente el porcentaje pedido de obstáculos, sin repetición, sobre celdas limpias
     public void generarObstaculos(int porcentajeObstaculos) {
-        int totalCeldas = filas * columnas;
-        int celdasObstaculo = (int) (totalCeldas * porcentajeObstaculos / 100.0);
+        int franjas = (filas + FILAS_FRANJA - 1) / FILAS_FRANJA;
+        int[] libres = new int[franjas];
+        enParalelo(franjas, f -> libres[f] = contarLimpias(f));
+        int[] cupos = repartir(libres, (long) filas * columnas * porcentajeObstaculos / 100);
+        Aleatorio[] flujos = dividirFlujos(franjas);
+        
+        enParalelo(franjas, f -> {
+            Aleatorio flujo = flujos[f];
+            long[] elegidas = elegirEnFranja(f, libres[f], cupos[f], flujo);
+            int inicio = f * FILAS_FRANJA * columnas;
+            for (int palabra = 0; palabra < elegidas.length; palabra++) {
+                for (long bits = elegidas[palabra]; bits != 0; bits &= bits - 1) {
+                    int tipoObstaculo = flujo.nextBoolean() ? OBSTACULO_SOFA : OBSTACULO_PARED;
+                    rejilla.escribir(inicio + (palabra << 6) + Long.numberOfTrailingZeros(bits),
+                                     codificar(TIPO_OBSTACULO, tipoObstaculo));
+                }
+            }
+        });
+        
+        versionObstaculos++;
+        versionEstaciones++;
+        versionCeldas++;
+    }
+    
+    private int contarLimpias(int franja) {
+        int inicio = franja * FILAS_FRANJA * columnas;
+        int fin = Math.min(filas, (franja + 1) * FILAS_FRANJA) * columnas;
+        int limpias = 0;
+        for (int i = inicio; i < fin; i++) {
+            if (tipoDe(rejilla.leer(i)) == TIPO_LIMPIA) {
+                limpias++;
+            }
+        }
+        return limpias;
+    }
+    
+    // Reparto estratificado: cada franja recibe la parte entera de su cuota proporcional y las
+    // unidades sobrantes van a las franjas con mayor resto. El total es exacto.
+    private static int[] repartir(int[] libres, long cantidad) {
+        long totalLibres = 0;
+        for (int l : libres) {
+            totalLibres += l;
+        }
+        cantidad = Math.min(cantidad, totalLibres);
+        int[] cupos = new int[libres.length];
+        if (cantidad == 0) {
+            return cupos;
+        }
+        
+        long[] restos = new long[libres.length];
+        long asignadas = 0;
+        for (int f = 0; f < libres.length; f++) {
+            long cuota = cantidad * libres[f];
+            cupos[f] = (int) (cuota / totalLibres);
+            restos[f] = cuota % totalLibres;
+            asignadas += cupos[f];
+        }
+        Integer[] orden = new Integer[libres.length];
+        for (int f = 0; f < orden.length; f++) {
+            orden[f] = f;
+        }
+        Arrays.sort(orden, (a, b) -> Long.compare(restos[b], restos[a])); // Estable: empata por franja
+        for (int k = 0; asignadas < cantidad; k++, asignadas++) {
+            cupos[orden[k]]++;
+        }
+        return cupos;
+    }
+    
+    // Un flujo por franja sacado en orden del generador del mundo: el resultado no depende de cuántos
+    // hilos ni en qué orden procesen las franjas
+    private Aleatorio[] dividirFlujos(int franjas) {
+        Aleatorio[] flujos = new Aleatorio[franjas];
+        for (int f = 0; f < franjas; f++) {
+            flujos[f] = random.dividir();
+        }
+        return flujos;
+    }
+    
+    // Elige 'cupo' de las 'libres' celdas limpias de la franja, uniforme y sin repetición: se sortean
+    // posiciones y se descartan las que no están limpias o ya salieron. Si el cupo pasa de la mitad se
+    // sortean las que se quedan fuera, así cada sorteo acierta al menos la mitad de las veces.
+    // Devuelve un mapa de bits por posición dentro de la franja.
+    private long[] elegirEnFranja(int franja, int libres, int cupo, Aleatorio flujo) {
+        int inicio = franja * FILAS_FRANJA * columnas;
+        int celdas = (Math.min(filas, (franja + 1) * FILAS_FRANJA) - franja * FILAS_FRANJA) * columnas;
+        boolean complemento = cupo > libres / 2;
+        int sorteos = complemento ? libres - cupo : cupo;
+        long[] marcadas = new long[(celdas + 63) >>> 6];
+        for (int k = 0; k < sorteos; ) {
+            int p = flujo.nextInt(celdas);
+            if ((marcadas[p >>> 6] & (1L << p)) == 0 && tipoDe(rejilla.leer(inicio + p)) == TIPO_LIMPIA) {
+                marcadas[p >>> 6] |= 1L << p;
+                k++;
+            }
+        }
+        if (!complemento) {
+            return marcadas;
+        }
         
-        for (int i = 0; i < celdasObstaculo; i++) {
-            int fila = random.nextInt(filas);
-            int columna = random.nextInt(columnas);
-            String tipoObstaculo = random.nextBoolean() ? "sofa" : "pared";
-            
-            celdas[fila][columna] = new CeldaObstaculo(fila, columna, tipoObstaculo);
+        // Las elegidas son las limpias que no se han marcado
+        for (int palabra = 0; palabra < marcadas.length; palabra++) {
+            int base = inicio + (palabra << 6);
+            int bitsPalabra = Math.min(64, celdas - (palabra << 6));
+            long limpias = 0;
+            for (int b = 0; b < bitsPalabra; b++) {
+                limpias |= (tipoDe(rejilla.leer(base + b)) == TIPO_LIMPIA ? 1L : 0L) << b;
+            }
+            marcadas[palabra] = limpias & ~marcadas[palabra];
         }
+        return marcadas;
+    }
+    
+    private static void enParalelo(int tareas, IntConsumer trabajo) {
+        ForkJoinPool.commonPool().invoke(new TareaFranjas(trabajo, 0, tareas));
+    }
+    
+    // Coloca las estaciones de carga y de vaciado sobre celdas limpias elegidas al azar
+    public void generarEstaciones(int cargadores, int vaciados) {
+        colocarEstaciones(TIPO_CARGADOR, cargadores);
+        colocarEstaciones(TIPO_VACIADO, vaciados);
     }
     
+    private void colocarEstaciones(int tipo, int cantidad) {
+        int intentosMaximos = 64 + filas * columnas;
+        for (int k = 0; k < cantidad; k++) {
+            for (int intento = 0; intento < intentosMaximos; intento++) {
+                int i = indice(random.nextInt(filas), random.nextInt(columnas));
+                if (tipoDe(rejilla.leer(i)) == TIPO_LIMPIA) {
+                    escribir(i, codificar(tipo, 0));
+                    break;
+                }
+            }
+        }
+    }
+    
+    // Devuelve una vista ligera compartida: solo es válida hasta la siguiente llamada a getCelda
     public Celda getCelda(int fila, int columna) {
         if (fila < 0 || fila >= filas || columna < 0 || columna >= columnas) {
             return null;
         }
-        return celdas[fila][columna];
+        
+        Celda vista;
+        switch (tipoDe(rejilla.leer(indice(fila, columna)))) {
+            case TIPO_SUCIA: vista = vistaSucia; break;
+            case TIPO_OBSTACULO: vista = vistaObstaculo; break;
+            case TIPO_CARGADOR: vista = vistaCargador; break;
+            case TIPO_VACIADO: vista = vistaVaciado; break;
+            default: vista = vistaLimpia; break;
+        }
+        vista.ubicar(fila, columna);
+        return vista;
     }
     
     public void setCelda(int fila, int columna, Celda celda) {
         if (fila >= 0 && fila < filas && columna >= 0 && columna < columnas) {
-            celdas[fila][columna] = celda;
+            escribir(indice(fila, columna), celda.codificar());
+        }
+    }
+    
+    byte getCodigo(int indice) {
+        return rejilla.leer(indice);
+    }
+    
+    public long getBytesReservados() {
+        return rejilla.bytesReservados();
+    }
+    
+    // Transiciones de estado en el sitio, sin crear objetos Celda
+    public void limpiar(int fila, int columna) {
+        if (posicionValida(fila, columna)) {
+            escribir(indice(fila, columna), codificar(TIPO_LIMPIA, 0));
+        }
+    }
+    
+    public void ensuciar(int fila, int columna, int nivelSuciedad) {
+        if (posicionValida(fila, columna)) {
+            escribir(indice(fila, columna), codificar(TIPO_SUCIA, Math.min(NIVEL_MAXIMO, Math.max(1, nivelSuciedad))));
+        }
+    }
+    
+    int getDato(int fila, int columna) {
+        return datoDe(rejilla.leer(indice(fila, columna)));
+    }
+    
+    boolean reducirSuciedad(int fila, int columna) {
+        int i = indice(fila, columna);
+        int nivel = datoDe(rejilla.leer(i)) - 1;
+        if (nivel <= 0) {
+            escribir(i, codificar(TIPO_LIMPIA, 0));
+            return true;
         }
+        escribir(i, codificar(TIPO_SUCIA, nivel));
+        return false;
+    }
+    
+    void aumentarSuciedad(int fila, int columna) {
+        int i = indice(fila, columna);
+        escribir(i, codificar(TIPO_SUCIA, Math.min(NIVEL_MAXIMO, datoDe(rejilla.leer(i)) + 1)));
+    }
+    
+    int getVersionObstaculos() {
+        return versionObstaculos;
+    }
+    
+    int getVersionEstaciones() {
+        return versionEstaciones;
+    }
+    
+    int getVersionCeldas() {
+        return versionCeldas;
+    }
+    
+    boolean esAccesible(int indice) {
+        return tipoDe(rejilla.leer(indice)) != TIPO_OBSTACULO;
     }
     
     public boolean posicionValida(int fila, int columna) {
@@ -67,63 +482,298 @@ public class Mundo {
     }
     
     public boolean posicionAccesible(int fila, int columna) {
-        return posicionValida(fila, columna) && !(celdas[fila][columna] instanceof CeldaObstaculo);
+        return posicionValida(fila, columna) && tipoDe(rejilla.leer(indice(fila, columna))) != TIPO_OBSTACULO;
     }
     
-    public int calcularSuciedadTotal() {
-        int suciedadTotal = 0;
-        
-        for (int i = 0; i < filas; i++) {
-            for (int j = 0; j < columnas; j++) {
-                if (celdas[i][j] instanceof CeldaSucia) {
-                    suciedadTotal += ((CeldaSucia) celdas[i][j]).getNivelSuciedad();
+    // Un bit por dirección con vecino accesible (orden de Posicion.DESPLAZAMIENTO_*); 0 si está atrapada
+    // En un mundo por bloques no se construye la tabla de máscaras (un byte por celda del plano): cada
+    // consulta mira los 8 vecinos
+    int vecinosAbiertos(int indice) {
+        if (porBloques) {
+            return VecinosAbiertos.calcular(this, indice / columnas, indice % columnas);
+        }
+        if (vecinosAbiertos == null) {
+            vecinosAbiertos = new VecinosAbiertos(this);
+        }
+        return vecinosAbiertos.mascara(indice);
+    }
+    
+    // Vecino accesible elegido con una sola tirada entre los abiertos, o -1 si no hay ninguno
+    int vecinoAlAzar(int indice, Aleatorio random) {
+        int mascara = vecinosAbiertos(indice);
+        if (mascara == 0) {
+            return -1;
+        }
+        int direccion = VecinosAbiertos.direccionAlAzar(mascara, random);
+        return indice + Posicion.DESPLAZAMIENTO_FILA[direccion] * columnas + Posicion.DESPLAZAMIENTO_COLUMNA[direccion];
+    }
+    
+    // Si nadie ha pedido aún las máscaras se miran los 8 vecinos: construirlas reserva un byte por
+    // celda del plano, demasiado para una sola consulta en un mundo por bloques grande
+    public boolean estaAtrapada(int fila, int columna) {
+        if (vecinosAbiertos == null) {
+            return VecinosAbiertos.calcular(this, fila, columna) == 0;
+        }
+        return vecinosAbiertos(indice(fila, columna)) == 0;
+    }
+    
+    // Celda accesible elegida de manera uniforme, o -1 si no hay ninguna. Se sortean primero unas
+    // pocas celdas del plano; solo si todas son obstáculos se recurre al índice, así en planos poco
+    // ocupados no se reserva nada y el tiempo queda acotado aunque el plano esté casi bloqueado.
+    // En un mundo por bloques no hay índice: se recorre el plano desde una celda al azar, y la
+    // elección deja de ser uniforme.
+    int celdaAccesibleAlAzar(Aleatorio random) {
+        for (int intento = 0; intento < INTENTOS_AL_AZAR; intento++) {
+            int i = indice(random.nextInt(filas), random.nextInt(columnas));
+            if (esAccesible(i)) {
+                return i;
+            }
+        }
+        if (porBloques) {
+            int total = filas * columnas;
+            int inicio = indice(random.nextInt(filas), random.nextInt(columnas));
+            for (int k = 0; k < total; k++) {
+                int i = (inicio + k) % total;
+                if (esAccesible(i)) {
+                    return i;
                 }
             }
+            return -1;
         }
-        
+        return getIndiceAccesibles().celdaAlAzar(random);
+    }
+    
+    public int contarAccesibles() {
+        return getIndiceAccesibles().contarAccesibles();
+    }
+    
+    public int contarComponentes() {
+        return getIndiceAccesibles().contarComponentes();
+    }
+    
+    public boolean mismaComponente(int fila, int columna, int otraFila, int otraColumna) {
+        IndiceAccesibles indice = getIndiceAccesibles();
+        int componente = indice.componenteDe(indice(fila, columna));
+        return componente >= 0 && componente == indice.componenteDe(indice(otraFila, otraColumna));
+    }
+    
+    // Suciedad de la zona conexa a la que se puede llegar desde (fila, columna)
+    public int suciedadAlcanzable(int fila, int columna) {
+        return getIndiceAccesibles().suciedadDeComponente(indice(fila, columna));
+    }
+    
+    private IndiceAccesibles getIndiceAccesibles() {
+        if (indiceAccesibles == null) {
+            exigirRejillaDensa("El índice de zonas conexas");
+            indiceAccesibles = new IndiceAccesibles(this);
+        }
+        return indiceAccesibles;
+    }
+    
+    public int calcularSuciedadTotal() {
         return suciedadTotal;
     }
     
+    public boolean estaLimpio() {
+        return suciedadTotal == 0;
+    }
+    
+    public CriterioDesempate getCriterioDesempate() {
+        return criterioDesempate;
+    }
+    
+    public void setCriterioDesempate(CriterioDesempate criterioDesempate) {
+        this.criterioDesempate = criterioDesempate;
+    }
+    
     public Posicion buscarPosicionMasSucia() {
-        int maxSuciedad = 0;
-        Posicion posicionMasSucia = null;
+        return buscarPosicionMasSucia(null);
+    }
+    
+    // La referencia solo se usa con el criterio MAS_CERCANO
+    public Posicion buscarPosicionMasSucia(Posicion referencia) {
+        int indice = buscarIndiceMasSucio(referencia);
+        if (indice < 0) {
+            return null;
+        }
+        return new Posicion(indice / columnas, indice % columnas);
+    }
+    
+    // Variante sin reservas: escribe el resultado en destino y devuelve false si no queda suciedad
+    public boolean buscarPosicionMasSucia(Posicion referencia, Posicion destino) {
+        int indice = buscarIndiceMasSucio(referencia);
+        if (indice < 0) {
+            return false;
+        }
+        destino.setFila(indice / columnas);
+        destino.setColumna(indice % columnas);
+        return true;
+    }
+    
+    private int buscarIndiceMasSucio(Posicion referencia) {
+        int nivel = NIVEL_MAXIMO;
+        while (nivel > 0 && tamanoCubetas[nivel] == 0) {
+            nivel--;
+        }
+        if (nivel == 0) {
+            return -1;
+        }
         
-        for (int i = 0; i < filas; i++) {
-            for (int j = 0; j < columnas; j++) {
-                if (celdas[i][j] instanceof CeldaSucia) {
-                    int nivelSuciedad = ((CeldaSucia) celdas[i][j]).getNivelSuciedad();
-                    if (nivelSuciedad > maxSuciedad) {
-                        maxSuciedad = nivelSuciedad;
-                        posicionMasSucia = new Posicion(i, j);
-                    }
+        int[] cubeta = cubetas[nivel];
+        int tamano = tamanoCubetas[nivel];
+        switch (criterioDesempate) {
+            case ALEATORIO:
+                return cubeta[random.nextInt(tamano)];
+            case MAS_CERCANO:
+                if (referencia != null) {
+                    return masCercano(cubeta, tamano, referencia.getFila(), referencia.getColumna());
                 }
+                return cubeta[0];
+            default:
+                return cubeta[0];
+        }
+    }
+    
+    // Distancia de Chebyshev: número de pasos con movimientos en 8 direcciones. Es lineal en el
+    // tamaño de la cubeta y se repite en cada búsqueda: la referencia y las cubetas cambian casi cada
+    // turno, así que guardar el resultado por versionCeldas apenas acertaría
+    private int masCercano(int[] cubeta, int tamano, int fila, int columna) {
+        int mejor = cubeta[0];
+        int mejorDistancia = Integer.MAX_VALUE;
+        for (int k = 0; k < tamano; k++) {
+            int indice = cubeta[k];
+            int distancia = Math.max(Math.abs(indice / columnas - fila), Math.abs(indice % columnas - columna));
+            if (distancia < mejorDistancia) {
+                mejorDistancia = distancia;
+                mejor = indice;
             }
         }
-        
-        return posicionMasSucia;
+        return mejor;
     }
     
     public void imprimir(Entidad aspiradora, Entidad gato) {
-        System.out.println("+--" + "-".repeat(columnas * 3) + "--+");
-        
-        for (int i = 0; i < filas; i++) {
-            System.out.print("| ");
-            
-            for (int j = 0; j < columnas; j++) {
-                if (aspiradora != null && aspiradora.getPosicion().getFila() == i && aspiradora.getPosicion().getColumna() == j) {
-                    System.out.print("(O)");
-                } 
-                else if (gato != null && gato.getPosicion().getFila() == i && gato.getPosicion().getColumna() == j) {
-                    System.out.print("\"^\"");
-                } 
-                else {
-                    System.out.print(celdas[i][j].representacion());
-                }
+        if (renderizador == null) {
+            renderizador = new Renderizador();
+        }
+        renderizador.dibujar(this, aspiradora, gato);
+    }
+    
+    public CampoDistancias getCampoDistancias() {
+        if (campoDistancias == null) {
+            exigirRejillaDensa("El campo de distancias a la suciedad");
+            campoDistancias = new CampoDistancias(this, TIPO_SUCIA);
+        }
+        return campoDistancias;
+    }
+    
+    // Distancia a la estación de carga más cercana; se reconstruye solo si cambian obstáculos o estaciones
+    public CampoDistancias getCampoCargadores() {
+        if (campoCargadores == null) {
+            exigirRejillaDensa("El campo de distancias a los cargadores");
+            campoCargadores = new CampoDistancias(this, TIPO_CARGADOR);
+        }
+        return campoCargadores;
+    }
+    
+    public CampoDistancias getCampoVaciados() {
+        if (campoVaciados == null) {
+            exigirRejillaDensa("El campo de distancias a las estaciones de vaciado");
+            campoVaciados = new CampoDistancias(this, TIPO_VACIADO);
+        }
+        return campoVaciados;
+    }
+    
+    // Los campos y el índice de zonas reservan varios enteros por celda del plano: en un mundo por
+    // bloques costarían mucho más que la propia rejilla
+    private void exigirRejillaDensa(String estructura) {
+        if (porBloques) {
+            throw new IllegalStateException(estructura + " reserva varios enteros por celda y no está disponible"
+                                            + " en un mundo por bloques");
+        }
+    }
+    
+    // Activa la planificación jerárquica para todas las rutas que se busquen en este mundo
+    public GrafoJerarquico getGrafoJerarquico() {
+        if (grafoJerarquico == null) {
+            grafoJerarquico = new GrafoJerarquico(this);
+        }
+        return grafoJerarquico;
+    }
+    
+    // En un mundo por bloques las rutas van siempre por el grafo: las tablas de A* sobre las celdas
+    // reservarían 16 bytes por celda
+    GrafoJerarquico grafoJerarquicoActivo() {
+        return porBloques ? getGrafoJerarquico() : grafoJerarquico;
+    }
+    
+    Aleatorio getAleatorio() {
+        return random;
+    }
+    
+    void exportarCeldas(ByteBuffer destino, int desde, int cantidad) {
+        rejilla.exportar(destino, desde, cantidad);
+    }
+    
+    // Solo para restaurar instantáneas: debe llamarse antes de restaurarEstado
+    void importarCeldas(ByteBuffer origen, int desde, int cantidad) {
+        rejilla.importar(origen, desde, cantidad);
+    }
+    
+    int bytesEstado() {
+        int bytes = 8 + 4 + 1 + 4 * NIVEL_MAXIMO;
+        for (int nivel = 1; nivel <= NIVEL_MAXIMO; nivel++) {
+            bytes += 4 * tamanoCubetas[nivel];
+        }
+        return bytes;
+    }
+    
+    // Se guarda el orden exacto de las cubetas para que el desempate sea idéntico tras restaurar
+    void guardarEstado(ByteBuffer destino) {
+        destino.putLong(random.getEstado());
+        destino.putInt(versionObstaculos);
+        destino.put((byte) criterioDesempate.ordinal());
+        for (int nivel = 1; nivel <= NIVEL_MAXIMO; nivel++) {
+            destino.putInt(tamanoCubetas[nivel]);
+            destino.asIntBuffer().put(cubetas[nivel], 0, tamanoCubetas[nivel]);
+            destino.position(destino.position() + 4 * tamanoCubetas[nivel]);
+        }
+    }
+    
+    void restaurarEstado(ByteBuffer origen) {
+        random.setEstado(origen.getLong());
+        versionObstaculos = origen.getInt();
+        criterioDesempate = CriterioDesempate.values()[origen.get()];
+        suciedadTotal = 0;
+        for (int nivel = 1; nivel <= NIVEL_MAXIMO; nivel++) {
+            int tamano = origen.getInt();
+            if (cubetas[nivel].length < tamano) {
+                cubetas[nivel] = new int[tamano];
+            }
+            origen.asIntBuffer().get(cubetas[nivel], 0, tamano);
+            origen.position(origen.position() + 4 * tamano);
+            tamanoCubetas[nivel] = tamano;
+            for (int k = 0; k < tamano; k++) {
+                rejilla.escribirRanura(cubetas[nivel][k], k);
             }
-            
-            System.out.println(" |");
+            suciedadTotal += nivel * tamano;
+        }
+        if (campoDistancias != null) {
+            campoDistancias.invalidar();
+        }
+        if (campoCargadores != null) {
+            campoCargadores.invalidar();
+        }
+        if (campoVaciados != null) {
+            campoVaciados.invalidar();
+        }
+        if (indiceAccesibles != null) {
+            indiceAccesibles.invalidar();
+        }
+        if (vecinosAbiertos != null) {
+            vecinosAbiertos.invalidar();
+        }
+        if (grafoJerarquico != null) {
+            grafoJerarquico.invalidar();
         }
-        
-        System.out.println("+--" + "-".repeat(columnas * 3) + "--+");
     }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package DOO.DD.DD02.v002extensible;
+
+// Parámetros del equipo y del entorno que se pueden ajustar en un barrido: batería y bolsa de la
+// aspiradora, aparición y duración del gato y densidad de obstáculos y suciedad al generar el mundo
+public class ParametrosLimpieza {
+    
+    // Cada parámetro entero, con el nombre de su columna en los ficheros de resultados
+    public enum Parametro {
+        BATERIA("bateria"),
+        BOLSA("bolsa"),
+        PROBABILIDAD_GATO("probabilidad_gato"),
+        PASOS_GATO("pasos_gato"),
+        OBSTACULOS("obstaculos"),
+        SUCIEDAD("suciedad");
+        
+        private final String columna;
+        
+        Parametro(String columna) {
+            this.columna = columna;
+        }
+        
+        public String getColumna() {
+            return columna;
+        }
+        
+        public int leer(ParametrosLimpieza parametros) {
+            switch (this) {
+                case BATERIA: return parametros.bateriaMaxima;
+                case BOLSA: return parametros.capacidadBolsa;
+                case PROBABILIDAD_GATO: return parametros.probabilidadGato;
+                case PASOS_GATO: return parametros.pasosGato;
+                case OBSTACULOS: return parametros.porcentajeObstaculos;
+                default: return parametros.porcentajeSuciedad;
+            }
+        }
+        
+        public ParametrosLimpieza escribir(ParametrosLimpieza parametros, int valor) {
+            switch (this) {
+                case BATERIA: return parametros.conBateria(valor);
+                case BOLSA: return parametros.conBolsa(valor);
+                case PROBABILIDAD_GATO: return parametros.conGato(valor, parametros.pasosGato);
+                case PASOS_GATO: return parametros.conGato(parametros.probabilidadGato, valor);
+                case OBSTACULOS: return parametros.conObstaculos(valor);
+                default: return parametros.conSuciedad(valor);
+            }
+        }
+    }
+    
+    private int bateriaMaxima = Aspiradora.BATERIA_MAXIMA;
+    private int capacidadBolsa = Aspiradora.CAPACIDAD_BOLSA;
+    private int probabilidadGato = 10; // Porcentaje de turnos sin gato en los que aparece uno
+    private int pasosGato = 10;
+    private int porcentajeObstaculos = 5;
+    private int porcentajeSuciedad = 30;
+    
+    public ParametrosLimpieza conBateria(int bateriaMaxima) {
+        if (bateriaMaxima <= 0) {
+            throw new IllegalArgumentException("La batería debe ser positiva: " + bateriaMaxima);
+        }
+        this.bateriaMaxima = bateriaMaxima;
+        return this;
+    }
+    
+    public ParametrosLimpieza conBolsa(int capacidadBolsa) {
+        if (capacidadBolsa <= 0) {
+            throw new IllegalArgumentException("La bolsa debe tener capacidad: " + capacidadBolsa);
+        }
+        this.capacidadBolsa = capacidadBolsa;
+        return this;
+    }
+    
+    public ParametrosLimpieza conGato(int probabilidadGato, int pasosGato) {
+        if (probabilidadGato < 0 || probabilidadGato > 100 || pasosGato < 0) {
+            throw new IllegalArgumentException("Gato no válido: " + probabilidadGato + "%, " + pasosGato + " pasos");
+        }
+        this.probabilidadGato = probabilidadGato;
+        this.pasosGato = pasosGato;
+        return this;
+    }
+    
+    public ParametrosLimpieza conObstaculos(int porcentajeObstaculos) {
+        if (porcentajeObstaculos < 0 || porcentajeObstaculos > 100) {
+            throw new IllegalArgumentException("Porcentaje de obstáculos no válido: " + porcentajeObstaculos + "%");
+        }
+        this.porcentajeObstaculos = porcentajeObstaculos;
+        return this;
+    }
+    
+    public ParametrosLimpieza conSuciedad(int porcentajeSuciedad) {
+        if (porcentajeSuciedad < 0 || porcentajeSuciedad > 100) {
+            throw new IllegalArgumentException("Porcentaje de suciedad no válido: " + porcentajeSuciedad + "%");
+        }
+        this.porcentajeSuciedad = porcentajeSuciedad;
+        return this;
+    }
+    
+    public ParametrosLimpieza copiar() {
+        return new ParametrosLimpieza()
+            .conBateria(bateriaMaxima)
+            .conBolsa(capacidadBolsa)
+            .conGato(probabilidadGato, pasosGato)
+            .conObstaculos(porcentajeObstaculos)
+            .conSuciedad(porcentajeSuciedad);
+    }
+    
+    public int getBateriaMaxima() {
+        return bateriaMaxima;
+    }
+    
+    public int getCapacidadBolsa() {
+        return capacidadBolsa;
+    }
+    
+    public int getProbabilidadGato() {
+        return probabilidadGato;
+    }
+    
+    public int getPasosGato() {
+        return pasosGato;
+    }
+    
+    public int getPorcentajeObstaculos() {
+        return porcentajeObstaculos;
+    }
+    
+    public int getPorcentajeSuciedad() {
+        return porcentajeSuciedad;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        for (Parametro parametro : Parametro.values()) {
+            if (texto.length() > 0) {
+                texto.append(", ");
+            }
+            texto.append(parametro.getColumna()).append('=').append(parametro.leer(this));
+        }
+        return texto.toString();
+    }
+}
\ No newline at end of file
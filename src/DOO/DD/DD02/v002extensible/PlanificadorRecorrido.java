@@ -0,0 +1,332 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.nio.ByteBuffer;
+
+// Planificador de recorridos con estaciones de carga y de vaciado. Ordena las próximas visitas
+// a celdas sucias por vecino más cercano (BFS desde la última parada) y simula la batería y la
+// bolsa a lo largo del plan: antes de una visita que dejaría la batería por debajo de lo que
+// cuesta volver al cargador más cercano, o cuando la bolsa se llena, intercala un desvío a la
+// estación correspondiente. Cada celda sucia se planifica tantas veces como niveles tiene.
+//
+// El plan cubre como mucho HORIZONTE paradas y se rehace cada PERIODO turnos, al llegar al final
+// o si una parada deja de tener sentido (la celda ya está limpia). Los tramos entre paradas los
+// recorre el PlanificadorRuta (A*) de la aspiradora.
+public class PlanificadorRecorrido {
+    private static final int HORIZONTE = 16;
+    private static final int PERIODO = 8;
+    
+    private final int bateriaMaxima;
+    private int columnas;
+    private int[] paradas = new int[HORIZONTE];
+    private int numeroParadas;
+    private int paradaActual;
+    private int ultimoPaso = -1;
+    private int turnosDesdePlan = PERIODO;
+    private int planificaciones;
+    
+    // Situación en la que el último plan salió vacío: mientras no cambie, replanificar daría lo mismo
+    private int origenSinPlan = -1;
+    private int celdasSinPlan;
+    private int bateriaSinPlan;
+    private int basuraSinPlan;
+    
+    // Memoria de trabajo del BFS, marcada por generaciones para no tener que limpiarla
+    private int[] visitada;
+    private int[] distancia;
+    private int[] cola;
+    private int[] marcaVisitas;   // Generación del plan en la que se contaron visitasPlaneadas
+    private int[] visitasPlaneadas;
+    private int generacionBusqueda;
+    private int generacionPlan;
+    private int origenBusqueda;
+    private int cabezaBusqueda;
+    private int finBusqueda;
+    private boolean quedaEnOrigen;
+    private boolean probarGradiente;
+    
+    public PlanificadorRecorrido() {
+        this(Aspiradora.BATERIA_MAXIMA);
+    }
+    
+    public PlanificadorRecorrido(int bateriaMaxima) {
+        this.bateriaMaxima = bateriaMaxima;
+    }
+    
+    public int getPlanificaciones() {
+        return planificaciones;
+    }
+    
+    public void olvidarPlan() {
+        numeroParadas = 0;
+        paradaActual = 0;
+        turnosDesdePlan = PERIODO;
+        origenSinPlan = -1;
+    }
+    
+    // Índice de la siguiente celda, o -1 si no queda nada que hacer al alcance
+    public int siguientePaso(Mundo mundo, int fila, int columna, int bateria, int basura, int capacidad,
+                             PlanificadorRuta ruta) {
+        // El campo va primero: en un mundo por bloques falla antes de reservar la memoria del BFS
+        CampoDistancias cargadores = mundo.getCampoCargadores();
+        prepararMemoria(mundo);
+        int origen = fila * columnas + columna;
+        
+        // Se llega a una parada con el paso que entra en ella o que se queda en ella, no por haber
+        // empezado el plan encima
+        if (paradaActual < numeroParadas && paradas[paradaActual] == origen && ultimoPaso == origen) {
+            paradaActual++;
+        }
+        ultimoPaso = -1;
+        // Un plan vacío (nada al alcance) no se repite hasta que pase el periodo
+        boolean terminado = paradaActual >= numeroParadas;
+        if (turnosDesdePlan >= PERIODO || terminado && numeroParadas > 0 || !terminado && !paradaVigente(mundo)) {
+            if (numeroParadas == 0 && origen == origenSinPlan && bateria == bateriaSinPlan && basura == basuraSinPlan
+                    && mundo.getVersionCeldas() == celdasSinPlan) {
+                turnosDesdePlan = 0;
+            } else {
+                planificar(mundo, origen, bateria, basura, capacidad);
+                origenSinPlan = numeroParadas == 0 ? origen : -1;
+                celdasSinPlan = mundo.getVersionCeldas();
+                bateriaSinPlan = bateria;
+                basuraSinPlan = basura;
+            }
+        }
+        turnosDesdePlan++;
+        if (paradaActual >= numeroParadas) {
+            return -1;
+        }
+        
+        int destino = paradas[paradaActual];
+        int siguiente = destino == origen
+                        ? origen
+                        : ruta.siguientePaso(mundo, fila, columna, destino / columnas, destino % columnas);
+        
+        // Red de seguridad: nunca se da un paso desde el que ya no se pueda llegar a un cargador
+        int reserva = cargadores.getDistancia(fila, columna);
+        if (reserva != CampoDistancias.INALCANZABLE && siguiente >= 0
+                && bateria - 1 < cargadores.getDistancia(siguiente / columnas, siguiente % columnas)) {
+            siguiente = cargadores.siguientePaso(fila, columna);
+            olvidarPlan();
+        }
+        ultimoPaso = siguiente;
+        return siguiente;
+    }
+    
+    private boolean paradaVigente(Mundo mundo) {
+        int tipo = Mundo.tipoDe(mundo.getCodigo(paradas[paradaActual]));
+        return tipo == Mundo.TIPO_SUCIA || tipo == Mundo.TIPO_CARGADOR || tipo == Mundo.TIPO_VACIADO;
+    }
+    
+    private void planificar(Mundo mundo, int origen, int bateria, int basura, int capacidad) {
+        planificaciones++;
+        generacionPlan++;
+        numeroParadas = 0;
+        paradaActual = 0;
+        turnosDesdePlan = 0;
+        
+        CampoDistancias cargadores = mundo.getCampoCargadores();
+        CampoDistancias vaciados = mundo.getCampoVaciados();
+        int actual = origen;
+        boolean recienCargada = bateria >= bateriaMaxima; // Con la batería llena no hay nada que cargar
+        boolean util = false;
+        iniciarBusqueda(actual);
+        
+        while (numeroParadas < HORIZONTE) {
+            int filaActual = actual / columnas;
+            int columnaActual = actual % columnas;
+            boolean hayCargador = cargadores.getDistancia(filaActual, columnaActual) != CampoDistancias.INALCANZABLE;
+            int siguienteParada;
+            
+            if (basura >= capacidad) {
+                int haciaVaciado = vaciados.getDistancia(filaActual, columnaActual);
+                if (haciaVaciado == CampoDistancias.INALCANZABLE) {
+                    break;
+                }
+                int vaciado = vaciados.origenMasCercano(filaActual, columnaActual);
+                if (hayCargador && bateria - haciaVaciado < cargadores.getDistancia(vaciado / columnas, vaciado % columnas)) {
+                    if (recienCargada) {
+                        break;
+                    }
+                    siguienteParada = cargadores.origenMasCercano(filaActual, columnaActual);
+                    bateria = bateriaMaxima;
+                    recienCargada = true;
+                } else {
+                    siguienteParada = vaciado;
+                    bateria -= haciaVaciado;
+                    basura = 0;
+                    recienCargada = false;
+                    util = true;
+                }
+            } else {
+                int objetivo = siguienteSuciedad(mundo, cargadores);
+                if (objetivo < 0) {
+                    break;
+                }
+                int coste = objetivo == actual ? 1 : distancia[objetivo];
+                int vuelta = hayCargador ? cargadores.getDistancia(objetivo / columnas, objetivo % columnas) : 0;
+                if (bateria - coste < vuelta) {
+                    if (!hayCargador || recienCargada) {
+                        // Desde aquí no se llega; la búsqueda sigue con la siguiente más cercana
+                        descartar(mundo, objetivo);
+                        continue;
+                    }
+                    siguienteParada = cargadores.origenMasCercano(filaActual, columnaActual);
+                    bateria = bateriaMaxima;
+                    recienCargada = true;
+                } else {
+                    siguienteParada = objetivo;
+                    contarVisita(objetivo, 1);
+                    bateria -= coste;
+                    basura++;
+                    recienCargada = false;
+                    util = true;
+                }
+            }
+            
+            paradas[numeroParadas++] = siguienteParada;
+            actual = siguienteParada;
+            iniciarBusqueda(actual);
+        }
+        if (!util) {
+            numeroParadas = 0; // Ir a cargar sin nada que hacer después solo haría ir y volver
+        }
+    }
+    
+    private void contarVisita(int indice, int visitas) {
+        if (marcaVisitas[indice] != generacionPlan) {
+            marcaVisitas[indice] = generacionPlan;
+            visitasPlaneadas[indice] = 0;
+        }
+        visitasPlaneadas[indice] += visitas;
+    }
+    
+    // La celda no se tiene en cuenta en lo que queda de este plan
+    private void descartar(Mundo mundo, int indice) {
+        contarVisita(indice, nivelesPendientes(mundo, indice));
+    }
+    
+    // BFS reanudable desde una parada: cada llamada a siguienteSuciedad continúa donde lo dejó
+    // la anterior, así que descartar un objetivo no obliga a repetir la búsqueda
+    private void iniciarBusqueda(int desde) {
+        generacionBusqueda++;
+        origenBusqueda = desde;
+        visitada[desde] = generacionBusqueda;
+        distancia[desde] = 0;
+        cola[0] = desde;
+        cabezaBusqueda = 0;
+        finBusqueda = 1;
+        quedaEnOrigen = true;
+        probarGradiente = true;
+    }
+    
+    // Siguiente celda, por distancia, a la que aún le quedan niveles sin planificar y desde la que
+    // se puede volver a un cargador. La propia celda de partida va primero: quedarse a aspirarla
+    // cuesta 1 paso, lo mismo que ir a una vecina.
+    private int siguienteSuciedad(Mundo mundo, CampoDistancias cargadores) {
+        int filas = mundo.filas;
+        if (quedaEnOrigen) {
+            quedaEnOrigen = false;
+            if (alcanzable(mundo, cargadores, origenBusqueda)) {
+                return origenBusqueda;
+            }
+        }
+        if (probarGradiente) {
+            // Atajo: el campo de suciedad da la celda sucia más cercana en O(distancia) sin BFS;
+            // solo sirve si esa celda no está ya planificada entera
+            probarGradiente = false;
+            int fila = origenBusqueda / columnas;
+            int columna = origenBusqueda % columnas;
+            CampoDistancias suciedad = mundo.getCampoDistancias();
+            int cercana = suciedad.origenMasCercano(fila, columna);
+            if (cercana >= 0 && cercana != origenBusqueda && alcanzable(mundo, cargadores, cercana)) {
+                distancia[cercana] = suciedad.getDistancia(fila, columna);
+                return cercana;
+            }
+        }
+        while (cabezaBusqueda < finBusqueda) {
+            int u = cola[cabezaBusqueda];
+            cabezaBusqueda++;
+            int fu = u / columnas;
+            int cu = u % columnas;
+            for (int d = 0; d < 8; d++) {
+                int f = fu + Posicion.DESPLAZAMIENTO_FILA[d];
+                int c = cu + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+                if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                    continue;
+                }
+                int w = f * columnas + c;
+                if (visitada[w] != generacionBusqueda && mundo.esAccesible(w)) {
+                    visitada[w] = generacionBusqueda;
+                    distancia[w] = distancia[u] + 1;
+                    cola[finBusqueda++] = w;
+                }
+            }
+            if (u != origenBusqueda && alcanzable(mundo, cargadores, u)) {
+                return u;
+            }
+        }
+        return -1;
+    }
+    
+    // Con cargadores, una celda a más de media batería del más cercano nunca se puede limpiar
+    private boolean alcanzable(Mundo mundo, CampoDistancias cargadores, int indice) {
+        if (nivelesPendientes(mundo, indice) <= 0) {
+            return false;
+        }
+        int vuelta = cargadores.getDistancia(indice / columnas, indice % columnas);
+        return vuelta == CampoDistancias.INALCANZABLE
+               ? cargadores.getDistancia(origenBusqueda / columnas, origenBusqueda % columnas) == CampoDistancias.INALCANZABLE
+               : 2 * vuelta <= bateriaMaxima;
+    }
+    
+    private int nivelesPendientes(Mundo mundo, int indice) {
+        byte codigo = mundo.getCodigo(indice);
+        if (Mundo.tipoDe(codigo) != Mundo.TIPO_SUCIA) {
+            return 0;
+        }
+        int planeadas = marcaVisitas[indice] == generacionPlan ? visitasPlaneadas[indice] : 0;
+        return Mundo.datoDe(codigo) - planeadas;
+    }
+    
+    private void prepararMemoria(Mundo mundo) {
+        int total = mundo.filas * mundo.columnas;
+        if (visitada == null || visitada.length != total || columnas != mundo.columnas) {
+            if (visitada != null) {
+                olvidarPlan(); // El plan guardado era de otro mundo
+            }
+            columnas = mundo.columnas;
+            visitada = new int[total];
+            distancia = new int[total];
+            cola = new int[total];
+            marcaVisitas = new int[total];
+            visitasPlaneadas = new int[total];
+            generacionBusqueda = 0;
+            generacionPlan = 0;
+        }
+    }
+    
+    int bytesEstado() {
+        return 3 * 4 + 4 * (numeroParadas - paradaActual);
+    }
+    
+    // Solo se guardan las paradas pendientes
+    void guardarEstado(ByteBuffer destino) {
+        destino.putInt(ultimoPaso);
+        destino.putInt(turnosDesdePlan);
+        destino.putInt(numeroParadas - paradaActual);
+        for (int i = paradaActual; i < numeroParadas; i++) {
+            destino.putInt(paradas[i]);
+        }
+    }
+    
+    void restaurarEstado(ByteBuffer origen) {
+        origenSinPlan = -1;
+        ultimoPaso = origen.getInt();
+        turnosDesdePlan = origen.getInt();
+        numeroParadas = origen.getInt();
+        paradaActual = 0;
+        for (int i = 0; i < numeroParadas; i++) {
+            paradas[i] = origen.getInt();
+        }
+    }
+}
\ No newline at end of file
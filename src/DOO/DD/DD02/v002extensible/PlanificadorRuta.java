@@ -0,0 +1,283 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Planificador A* sobre la vecindad de 8 direcciones de Posicion.mover. Todos los pasos
+// cuestan lo mismo (una unidad de batería), así que la distancia de Chebyshev es una
+// heurística admisible. La ruta calculada se guarda y solo se vuelve a planificar si
+// cambia el objetivo, la aspiradora se sale de la ruta o aparece un obstáculo en ella.
+// Si el mundo tiene activado el grafo jerárquico la ruta se pide a él y las tablas de la
+// búsqueda plana, del tamaño del plano, no llegan a reservarse.
+public class PlanificadorRuta {
+    private static final int SIN_RUTA = -1;
+    
+    private int columnas;
+    private int celdas;
+    private int[] coste;
+    private int[] padre;
+    private int[] visitada; // Generación en la que se alcanzó cada celda
+    private int[] cerrada;  // Generación en la que se expandió cada celda
+    private int generacion;
+    private long[] monticulo = new long[64];
+    private int tamanoMonticulo;
+    
+    // Ruta en caché: ruta[0..longitudRuta) va del primer paso hasta el objetivo
+    private int[] ruta = new int[64];
+    private int longitudRuta;
+    private int pasoActual;
+    private int objetivoRuta = SIN_RUTA;
+    private int origenEsperado = SIN_RUTA;
+    private int versionRuta;
+    private boolean objetivoInalcanzable;
+    
+    private int planificaciones;
+    
+    public int getPlanificaciones() {
+        return planificaciones;
+    }
+    
+    public void olvidarRuta() {
+        objetivoRuta = SIN_RUTA;
+    }
+    
+    // Devuelve el índice de la siguiente celda hacia el objetivo, o -1 si no hay camino
+    public int siguientePaso(Mundo mundo, int filaOrigen, int columnaOrigen, int filaObjetivo, int columnaObjetivo) {
+        prepararMemoria(mundo);
+        int origen = filaOrigen * columnas + columnaOrigen;
+        int objetivo = filaObjetivo * columnas + columnaObjetivo;
+        
+        if (origen == objetivo) {
+            return objetivo;
+        }
+        
+        if (!rutaVigente(mundo, origen, objetivo)) {
+            planificar(mundo, origen, objetivo);
+        }
+        
+        if (objetivoInalcanzable) {
+            return SIN_RUTA;
+        }
+        
+        int siguiente = ruta[pasoActual++];
+        origenEsperado = siguiente;
+        return siguiente;
+    }
+    
+    private boolean rutaVigente(Mundo mundo, int origen, int objetivo) {
+        if (objetivo != objetivoRuta) {
+            return false;
+        }
+        if (objetivoInalcanzable) {
+            return versionRuta == mundo.getVersionObstaculos();
+        }
+        if (origen != origenEsperado || pasoActual >= longitudRuta) {
+            return false;
+        }
+        if (versionRuta != mundo.getVersionObstaculos()) {
+            // Algún obstáculo ha cambiado: solo se replanifica si bloquea el resto de la ruta
+            for (int i = pasoActual; i < longitudRuta; i++) {
+                if (!mundo.esAccesible(ruta[i])) {
+                    return false;
+                }
+            }
+            versionRuta = mundo.getVersionObstaculos();
+        }
+        return true;
+    }
+    
+    private void prepararMemoria(Mundo mundo) {
+        int total = mundo.filas * mundo.columnas;
+        if (celdas != total || columnas != mundo.columnas) {
+            if (celdas != 0) {
+                objetivoRuta = SIN_RUTA; // La ruta guardada era de otro mundo
+            }
+            columnas = mundo.columnas;
+            celdas = total;
+            coste = null;
+        }
+    }
+    
+    private void reservarBusqueda() {
+        if (coste == null) {
+            coste = new int[celdas];
+            padre = new int[celdas];
+            visitada = new int[celdas];
+            cerrada = new int[celdas];
+            generacion = 0;
+        }
+    }
+    
+    private void planificar(Mundo mundo, int origen, int objetivo) {
+        planificaciones++;
+        objetivoRuta = objetivo;
+        versionRuta = mundo.getVersionObstaculos();
+        pasoActual = 0;
+        longitudRuta = 0;
+        GrafoJerarquico grafo = mundo.grafoJerarquicoActivo();
+        objetivoInalcanzable = grafo != null ? !copiarRuta(grafo.ruta(origen, objetivo)) : !buscar(mundo, origen, objetivo);
+        origenEsperado = origen;
+    }
+    
+    private boolean copiarRuta(int[] camino) {
+        if (camino == null) {
+            return false;
+        }
+        if (ruta.length < camino.length) {
+            ruta = new int[Math.max(camino.length, ruta.length * 2)];
+        }
+        System.arraycopy(camino, 0, ruta, 0, camino.length);
+        longitudRuta = camino.length;
+        return true;
+    }
+    
+    private boolean buscar(Mundo mundo, int origen, int objetivo) {
+        if (!mundo.esAccesible(objetivo)) {
+            return false;
+        }
+        
+        reservarBusqueda();
+        nuevaGeneracion();
+        int filaObjetivo = objetivo / columnas;
+        int columnaObjetivo = objetivo % columnas;
+        
+        tamanoMonticulo = 0;
+        coste[origen] = 0;
+        padre[origen] = SIN_RUTA;
+        visitada[origen] = generacion;
+        insertar(heuristica(origen, filaObjetivo, columnaObjetivo), origen);
+        
+        while (tamanoMonticulo > 0) {
+            int actual = (int) extraerMinimo();
+            if (cerrada[actual] == generacion) {
+                continue;
+            }
+            cerrada[actual] = generacion;
+            
+            if (actual == objetivo) {
+                reconstruirRuta(origen, objetivo);
+                return true;
+            }
+            
+            int fila = actual / columnas;
+            int columna = actual % columnas;
+            int costeVecino = coste[actual] + 1;
+            for (int direccion = 0; direccion < 8; direccion++) {
+                int nuevaFila = fila + Posicion.DESPLAZAMIENTO_FILA[direccion];
+                int nuevaColumna = columna + Posicion.DESPLAZAMIENTO_COLUMNA[direccion];
+                if (!mundo.posicionAccesible(nuevaFila, nuevaColumna)) {
+                    continue;
+                }
+                int vecino = nuevaFila * columnas + nuevaColumna;
+                if (cerrada[vecino] == generacion) {
+                    continue;
+                }
+                if (visitada[vecino] != generacion || costeVecino < coste[vecino]) {
+                    visitada[vecino] = generacion;
+                    coste[vecino] = costeVecino;
+                    padre[vecino] = actual;
+                    insertar(costeVecino + heuristica(vecino, filaObjetivo, columnaObjetivo), vecino);
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    private int heuristica(int indice, int filaObjetivo, int columnaObjetivo) {
+        return Math.max(Math.abs(indice / columnas - filaObjetivo), Math.abs(indice % columnas - columnaObjetivo));
+    }
+    
+    private void reconstruirRuta(int origen, int objetivo) {
+        int longitud = coste[objetivo];
+        if (ruta.length < longitud) {
+            ruta = new int[Math.max(longitud, ruta.length * 2)];
+        }
+        int celda = objetivo;
+        for (int i = longitud - 1; i >= 0; i--) {
+            ruta[i] = celda;
+            celda = padre[celda];
+        }
+        longitudRuta = longitud;
+    }
+    
+    private void nuevaGeneracion() {
+        generacion++;
+        if (generacion == Integer.MAX_VALUE) {
+            Arrays.fill(visitada, 0);
+            Arrays.fill(cerrada, 0);
+            generacion = 1;
+        }
+    }
+    
+    // Montículo binario de mínimos; cada entrada empaqueta la prioridad (32 bits altos) y la celda
+    private void insertar(int prioridad, int celda) {
+        if (tamanoMonticulo == monticulo.length) {
+            monticulo = Arrays.copyOf(monticulo, tamanoMonticulo * 2);
+        }
+        long entrada = ((long) prioridad << 32) | celda;
+        int i = tamanoMonticulo++;
+        while (i > 0) {
+            int padreMonticulo = (i - 1) >>> 1;
+            if (monticulo[padreMonticulo] <= entrada) {
+                break;
+            }
+            monticulo[i] = monticulo[padreMonticulo];
+            i = padreMonticulo;
+        }
+        monticulo[i] = entrada;
+    }
+    
+    private long extraerMinimo() {
+        long minimo = monticulo[0];
+        long ultimo = monticulo[--tamanoMonticulo];
+        int i = 0;
+        int mitad = tamanoMonticulo >>> 1;
+        while (i < mitad) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < tamanoMonticulo && monticulo[hijo + 1] < monticulo[hijo]) {
+                hijo++;
+            }
+            if (ultimo <= monticulo[hijo]) {
+                break;
+            }
+            monticulo[i] = monticulo[hijo];
+            i = hijo;
+        }
+        monticulo[i] = ultimo;
+        return minimo & 0xFFFFFFFFL;
+    }
+    
+    int bytesEstado() {
+        return 4 * 4 + 1 + 4 * Math.max(0, longitudRuta - pasoActual);
+    }
+    
+    // Solo se guarda el tramo de ruta pendiente
+    void guardarEstado(ByteBuffer destino) {
+        int pendientes = Math.max(0, longitudRuta - pasoActual);
+        destino.putInt(objetivoRuta);
+        destino.putInt(origenEsperado);
+        destino.putInt(versionRuta);
+        destino.put((byte) (objetivoInalcanzable ? 1 : 0));
+        destino.putInt(pendientes);
+        for (int i = 0; i < pendientes; i++) {
+            destino.putInt(ruta[pasoActual + i]);
+        }
+    }
+    
+    void restaurarEstado(ByteBuffer origen) {
+        objetivoRuta = origen.getInt();
+        origenEsperado = origen.getInt();
+        versionRuta = origen.getInt();
+        objetivoInalcanzable = origen.get() != 0;
+        int pendientes = origen.getInt();
+        if (ruta.length < pendientes) {
+            ruta = new int[pendientes];
+        }
+        for (int i = 0; i < pendientes; i++) {
+            ruta[i] = origen.getInt();
+        }
+        pasoActual = 0;
+        longitudRuta = pendientes;
+    }
+}
\ No newline at end of file
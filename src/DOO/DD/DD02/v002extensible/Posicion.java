@@ -1,6 +1,10 @@
 package DOO.DD.DD02.v002extensible;
 
 public class Posicion {
+    // Desplazamientos de las 8 direcciones, en el mismo orden que mover(direccion)
+    static final int[] DESPLAZAMIENTO_FILA = {-1, -1, 0, 1, 1, 1, 0, -1};
+    static final int[] DESPLAZAMIENTO_COLUMNA = {0, 1, 1, 1, 0, -1, -1, -1};
+    
     private int fila;
     private int columna;
     
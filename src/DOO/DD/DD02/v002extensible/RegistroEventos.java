@@ -0,0 +1,19 @@
+package DOO.DD.DD02.v002extensible;
+
+public interface RegistroEventos {
+    // Registro que descarta todos los eventos sin ningún coste
+    RegistroEventos NULO = new RegistroEventos() {
+        @Override
+        public void publicar(TipoEvento tipo, int fila, int columna, int anterior, int actual) {
+        }
+    };
+    
+    void publicar(TipoEvento tipo, int fila, int columna, int anterior, int actual);
+    
+    // Espera a que se hayan procesado todos los eventos publicados
+    default void vaciar() {
+    }
+    
+    default void cerrar() {
+    }
+}
\ No newline at end of file
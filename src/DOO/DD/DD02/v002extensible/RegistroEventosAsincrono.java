@@ -0,0 +1,118 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Anillo preasignado de eventos primitivos con un único productor (el hilo de la simulación) y un
+// hilo consumidor que los formatea por lotes. Publicar no formatea ni reserva memoria; si el
+// anillo se llena, el productor espera a que el consumidor libere espacio. Sin eventos pendientes el
+// consumidor duerme sin plazo y el productor lo despierta solo si lo ve dormido.
+public class RegistroEventosAsincrono implements RegistroEventos {
+    private static final int DATOS_POR_EVENTO = 4;
+    
+    private final PrintStream salida;
+    private final Verbosidad verbosidad;
+    private final int mascara;
+    private final byte[] tipos;
+    private final int[] datos;
+    
+    private final AtomicLong publicados = new AtomicLong(); // Escrito solo por el productor
+    private final AtomicLong consumidos = new AtomicLong(); // Escrito solo por el consumidor
+    private final Thread consumidor;
+    private volatile boolean dormido; // El consumidor va a aparcar o está aparcado
+    private volatile boolean cerrado;
+    
+    public RegistroEventosAsincrono(PrintStream salida, Verbosidad verbosidad) {
+        this(salida, verbosidad, 1 << 14);
+    }
+    
+    public RegistroEventosAsincrono(PrintStream salida, Verbosidad verbosidad, int capacidad) {
+        int potencia = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+        this.salida = salida;
+        this.verbosidad = verbosidad;
+        this.mascara = potencia - 1;
+        this.tipos = new byte[potencia];
+        this.datos = new int[potencia * DATOS_POR_EVENTO];
+        this.consumidor = new Thread(this::consumir, "registro-eventos");
+        this.consumidor.setDaemon(true);
+        this.consumidor.start();
+    }
+    
+    @Override
+    public void publicar(TipoEvento tipo, int fila, int columna, int anterior, int actual) {
+        if (!tipo.visibleCon(verbosidad)) {
+            return;
+        }
+        long secuencia = publicados.get();
+        while (secuencia - consumidos.get() > mascara) {
+            LockSupport.parkNanos(1000);
+        }
+        int ranura = (int) secuencia & mascara;
+        int base = ranura * DATOS_POR_EVENTO;
+        tipos[ranura] = (byte) tipo.ordinal();
+        datos[base] = fila;
+        datos[base + 1] = columna;
+        datos[base + 2] = anterior;
+        datos[base + 3] = actual;
+        // Escritura con barrera completa: o el consumidor ve el evento antes de aparcar o aquí se ve
+        // que está dormido
+        publicados.set(secuencia + 1);
+        if (dormido) {
+            LockSupport.unpark(consumidor);
+        }
+    }
+    
+    @Override
+    public void vaciar() {
+        while (consumidos.get() < publicados.get()) {
+            LockSupport.parkNanos(1000);
+        }
+    }
+    
+    @Override
+    public void cerrar() {
+        vaciar();
+        cerrado = true;
+        LockSupport.unpark(consumidor);
+        try {
+            consumidor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void consumir() {
+        StringBuilder texto = new StringBuilder(4096);
+        String saltoLinea = System.lineSeparator();
+        long siguiente = 0;
+        
+        while (true) {
+            long disponibles = publicados.get();
+            if (siguiente == disponibles) {
+                if (cerrado) {
+                    return;
+                }
+                dormido = true;
+                if (publicados.get() == siguiente && !cerrado) {
+                    LockSupport.park(this);
+                }
+                dormido = false;
+                continue;
+            }
+            
+            for (; siguiente < disponibles; siguiente++) {
+                int ranura = (int) siguiente & mascara;
+                int base = ranura * DATOS_POR_EVENTO;
+                TipoEvento.VALORES[tipos[ranura]].formatear(texto, datos[base], datos[base + 1],
+                                                            datos[base + 2], datos[base + 3]);
+                texto.append(saltoLinea);
+            }
+            // Se escribe el lote antes de liberar las ranuras para que vaciar() garantice la salida
+            salida.print(texto);
+            salida.flush();
+            texto.setLength(0);
+            consumidos.lazySet(siguiente);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.nio.ByteBuffer;
+
+// Almacén de los códigos de celda de un Mundo y de la ranura de cada celda sucia en su cubeta
+interface Rejilla {
+    byte leer(int indice);
+    
+    void escribir(int indice, byte codigo);
+    
+    int leerRanura(int indice);
+    
+    void escribirRanura(int indice, int ranura);
+    
+    long bytesReservados();
+    
+    default void exportar(ByteBuffer destino, int desde, int cantidad) {
+        for (int i = desde; i < desde + cantidad; i++) {
+            destino.put(leer(i));
+        }
+    }
+    
+    // Copia códigos en bruto, sin pasar por la lógica de índices del Mundo
+    default void importar(ByteBuffer origen, int desde, int cantidad) {
+        for (int i = desde; i < desde + cantidad; i++) {
+            escribir(i, origen.get());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.nio.ByteBuffer;
+
+// Un byte por celda y una ranura por celda, reservados desde el principio
+class RejillaDensa implements Rejilla {
+    private final byte[] celdas;
+    private final int[] ranuras;
+    
+    RejillaDensa(int totalCeldas) {
+        this.celdas = new byte[totalCeldas]; // Todas las celdas empiezan limpias (código 0)
+        this.ranuras = new int[totalCeldas];
+    }
+    
+    @Override
+    public byte leer(int indice) {
+        return celdas[indice];
+    }
+    
+    @Override
+    public void escribir(int indice, byte codigo) {
+        celdas[indice] = codigo;
+    }
+    
+    @Override
+    public int leerRanura(int indice) {
+        return ranuras[indice];
+    }
+    
+    @Override
+    public void escribirRanura(int indice, int ranura) {
+        ranuras[indice] = ranura;
+    }
+    
+    @Override
+    public void exportar(ByteBuffer destino, int desde, int cantidad) {
+        destino.put(celdas, desde, cantidad);
+    }
+    
+    @Override
+    public void importar(ByteBuffer origen, int desde, int cantidad) {
+        origen.get(celdas, desde, cantidad);
+    }
+    
+    @Override
+    public long bytesReservados() {
+        return celdas.length + 4L * ranuras.length;
+    }
+}
\ No newline at end of file
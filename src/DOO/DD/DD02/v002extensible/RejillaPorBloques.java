@@ -0,0 +1,94 @@
+package DOO.DD.DD02.v002extensible;
+
+// Rejilla dividida en bloques de 64x64 celdas que solo se reservan al escribir en ellos por primera
+// vez. Un bloque sin reservar equivale a un bloque completamente limpio, así que crear el mundo es
+// inmediato y la memoria crece con la superficie que de verdad se ensucia o se modifica.
+class RejillaPorBloques implements Rejilla {
+    static final int BITS_BLOQUE = 6;
+    static final int LADO_BLOQUE = 1 << BITS_BLOQUE;
+    private static final int MASCARA = LADO_BLOQUE - 1;
+    private static final int CELDAS_BLOQUE = LADO_BLOQUE * LADO_BLOQUE;
+    
+    private final int columnas;
+    private final int bloquesPorFila;
+    private final byte[][] celdas;
+    private final int[][] ranuras; // Solo se reservan en bloques que han tenido suciedad
+    
+    RejillaPorBloques(int filas, int columnas) {
+        this.columnas = columnas;
+        this.bloquesPorFila = (columnas + MASCARA) >>> BITS_BLOQUE;
+        int bloquesPorColumna = (filas + MASCARA) >>> BITS_BLOQUE;
+        this.celdas = new byte[bloquesPorFila * bloquesPorColumna][];
+        this.ranuras = new int[celdas.length][];
+    }
+    
+    private int bloque(int fila, int columna) {
+        return (fila >>> BITS_BLOQUE) * bloquesPorFila + (columna >>> BITS_BLOQUE);
+    }
+    
+    private static int desplazamiento(int fila, int columna) {
+        return ((fila & MASCARA) << BITS_BLOQUE) | (columna & MASCARA);
+    }
+    
+    @Override
+    public byte leer(int indice) {
+        int fila = indice / columnas;
+        int columna = indice - fila * columnas;
+        byte[] bloque = celdas[bloque(fila, columna)];
+        return bloque == null ? 0 : bloque[desplazamiento(fila, columna)];
+    }
+    
+    @Override
+    public void escribir(int indice, byte codigo) {
+        int fila = indice / columnas;
+        int columna = indice - fila * columnas;
+        int b = bloque(fila, columna);
+        byte[] bloque = celdas[b];
+        if (bloque == null) {
+            if (codigo == 0) {
+                return; // Ya está implícitamente limpia
+            }
+            bloque = new byte[CELDAS_BLOQUE];
+            celdas[b] = bloque;
+        }
+        bloque[desplazamiento(fila, columna)] = codigo;
+    }
+    
+    @Override
+    public int leerRanura(int indice) {
+        int fila = indice / columnas;
+        int columna = indice - fila * columnas;
+        return ranuras[bloque(fila, columna)][desplazamiento(fila, columna)];
+    }
+    
+    @Override
+    public void escribirRanura(int indice, int ranura) {
+        int fila = indice / columnas;
+        int columna = indice - fila * columnas;
+        int b = bloque(fila, columna);
+        int[] bloque = ranuras[b];
+        if (bloque == null) {
+            bloque = new int[CELDAS_BLOQUE];
+            ranuras[b] = bloque;
+        }
+        bloque[desplazamiento(fila, columna)] = ranura;
+    }
+    
+    // Los bloques se cuentan al consultar y no al reservarlos: así dos hilos pueden escribir a la vez
+    // en bloques distintos sin compartir ningún contador
+    @Override
+    public long bytesReservados() {
+        int bloquesReservados = 0;
+        int bloquesConRanuras = 0;
+        for (int b = 0; b < celdas.length; b++) {
+            if (celdas[b] != null) {
+                bloquesReservados++;
+            }
+            if (ranuras[b] != null) {
+                bloquesConRanuras++;
+            }
+        }
+        return 8L * celdas.length * 2 + (long) bloquesReservados * CELDAS_BLOQUE
+               + 4L * bloquesConRanuras * CELDAS_BLOQUE;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,244 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// Compone cada imagen del mundo en un búfer de bytes reutilizable y la escribe con una sola llamada.
+// En modo DIFERENCIAL el mapa y el estado quedan fijos en lo alto de la pantalla, el resto del texto se
+// desplaza por debajo, y solo se reescriben, con secuencias ANSI, las filas que han cambiado.
+public class Renderizador {
+    public enum Modo {
+        COMPLETO,
+        DIFERENCIAL
+    }
+    
+    // Códigos visuales de las entidades; no colisionan con los códigos de celda (6 bits)
+    private static final byte VISUAL_ASPIRADORA = (byte) 0xFE;
+    private static final byte VISUAL_GATO = (byte) 0xFD;
+    
+    private static final String SALTO_LINEA = System.lineSeparator();
+    private static final String[] SIN_ESTADO = {};
+    
+    private static final byte[] ASPIRADORA = ascii("(O)");
+    private static final byte[] GATO = ascii("\"^\"");
+    private static final byte[] LIMPIA = ascii(" . ");
+    private static final byte[][] SUCIA = { LIMPIA, ascii("..."), ascii("ooo"), ascii("OOO"), ascii("***") };
+    private static final byte[][] OBSTACULO = { ascii("[--]"), ascii("[##]"), ascii("####") };
+    private static final byte[] CARGADOR = ascii("[+]");
+    private static final byte[] VACIADO = ascii("[V]");
+    
+    private final PrintStream salida;
+    private final Modo modo;
+    private final int cadaNTurnos;
+    
+    private byte[] buffer = new byte[4096];
+    private int longitud;
+    private byte[] fila;    // Códigos visuales de la fila que se está componiendo
+    private byte[] previo;  // Códigos visuales de la última imagen, para el modo diferencial
+    private int filasPrevias = -1;
+    private int columnasPrevias = -1;
+    private String[] estadoPrevio = SIN_ESTADO;
+    
+    public Renderizador() {
+        this(System.out, Modo.COMPLETO, 1);
+    }
+    
+    public Renderizador(PrintStream salida, Modo modo, int cadaNTurnos) {
+        this.salida = salida;
+        this.modo = modo;
+        this.cadaNTurnos = Math.max(1, cadaNTurnos);
+    }
+    
+    public Modo getModo() {
+        return modo;
+    }
+    
+    // Salto de imágenes: solo se dibuja uno de cada cadaNTurnos turnos
+    public boolean tocaDibujar(int turno) {
+        return turno % cadaNTurnos == 0;
+    }
+    
+    public void dibujar(Mundo mundo, Entidad aspiradora, Entidad gato) {
+        dibujar(mundo, aspiradora, gato, SIN_ESTADO);
+    }
+    
+    // Dibuja el mapa y, debajo, las líneas de estado
+    public void dibujar(Mundo mundo, Entidad aspiradora, Entidad gato, String[] estado) {
+        longitud = 0;
+        boolean completa = modo == Modo.COMPLETO
+                           || mundo.filas != filasPrevias || mundo.columnas != columnasPrevias
+                           || estado.length != estadoPrevio.length;
+        
+        if (modo == Modo.DIFERENCIAL) {
+            if (completa) {
+                previo = new byte[mundo.filas * mundo.columnas];
+                filasPrevias = mundo.filas;
+                columnasPrevias = mundo.columnas;
+                estadoPrevio = new String[estado.length];
+                escribirAscii("\033[r\033[2J\033[H");
+            } else {
+                // Guarda el cursor del texto que se desplaza bajo la zona fija para devolverlo al final
+                escribirAscii("\0337");
+            }
+        }
+        if (fila == null || fila.length != mundo.columnas) {
+            fila = new byte[mundo.columnas];
+        }
+        
+        if (completa) {
+            escribirBorde(mundo.columnas);
+        }
+        
+        for (int i = 0; i < mundo.filas; i++) {
+            boolean cambiada = componerFila(mundo, i, aspiradora, gato);
+            if (completa) {
+                escribirFila();
+                escribirAscii(SALTO_LINEA);
+            } else if (cambiada) {
+                irALinea(i + 2); // La línea 1 es el borde superior
+                escribirFila();
+                escribirAscii("\033[K");
+            }
+        }
+        
+        if (completa) {
+            escribirBorde(mundo.columnas);
+        }
+        for (int k = 0; k < estado.length; k++) {
+            if (completa) {
+                escribirTexto(estado[k]);
+                escribirAscii(SALTO_LINEA);
+            } else if (!estado[k].equals(estadoPrevio[k])) {
+                irALinea(mundo.filas + 3 + k);
+                escribirTexto(estado[k]);
+                escribirAscii("\033[K");
+            }
+        }
+        
+        if (modo == Modo.DIFERENCIAL) {
+            System.arraycopy(estado, 0, estadoPrevio, 0, estado.length);
+            if (completa) {
+                // Solo se desplazan las líneas bajo el mapa y el estado, así que sus filas no se mueven nunca
+                int primeraLibre = mundo.filas + 3 + estado.length;
+                escribirAscii("\033[");
+                escribirEntero(primeraLibre);
+                escribirAscii("r");
+                irALinea(primeraLibre);
+            } else {
+                escribirAscii("\0338");
+            }
+        }
+        
+        salida.write(buffer, 0, longitud);
+        salida.flush();
+    }
+    
+    // Devuelve al terminal la región de desplazamiento completa sin mover el cursor
+    public void cerrar() {
+        if (modo == Modo.DIFERENCIAL && filasPrevias >= 0) {
+            salida.print("\0337\033[r\0338");
+            salida.flush();
+        }
+    }
+    
+    private boolean componerFila(Mundo mundo, int i, Entidad aspiradora, Entidad gato) {
+        int base = i * mundo.columnas;
+        for (int j = 0; j < mundo.columnas; j++) {
+            fila[j] = mundo.getCodigo(base + j);
+        }
+        // Mismo orden de prioridad que la representación original: la aspiradora tapa al gato
+        if (gato != null && gato.getPosicion().getFila() == i) {
+            fila[gato.getPosicion().getColumna()] = VISUAL_GATO;
+        }
+        if (aspiradora != null && aspiradora.getPosicion().getFila() == i) {
+            fila[aspiradora.getPosicion().getColumna()] = VISUAL_ASPIRADORA;
+        }
+        
+        if (previo == null) {
+            return true;
+        }
+        boolean cambiada = false;
+        for (int j = 0; j < mundo.columnas; j++) {
+            if (previo[base + j] != fila[j]) {
+                previo[base + j] = fila[j];
+                cambiada = true;
+            }
+        }
+        return cambiada;
+    }
+    
+    private void escribirFila() {
+        escribirAscii("| ");
+        for (byte codigo : fila) {
+            escribir(representacion(codigo));
+        }
+        escribirAscii(" |");
+    }
+    
+    private static byte[] representacion(byte codigo) {
+        if (codigo == VISUAL_ASPIRADORA) {
+            return ASPIRADORA;
+        }
+        if (codigo == VISUAL_GATO) {
+            return GATO;
+        }
+        switch (Mundo.tipoDe(codigo)) {
+            case Mundo.TIPO_SUCIA: return SUCIA[Mundo.datoDe(codigo)];
+            case Mundo.TIPO_OBSTACULO: return OBSTACULO[Mundo.datoDe(codigo)];
+            case Mundo.TIPO_CARGADOR: return CARGADOR;
+            case Mundo.TIPO_VACIADO: return VACIADO;
+            default: return LIMPIA;
+        }
+    }
+    
+    private void escribirBorde(int columnas) {
+        asegurarCapacidad(columnas * 3 + 8);
+        escribirAscii("+--");
+        Arrays.fill(buffer, longitud, longitud + columnas * 3, (byte) '-');
+        longitud += columnas * 3;
+        escribirAscii("--+");
+        escribirAscii(SALTO_LINEA);
+    }
+    
+    private void irALinea(int linea) {
+        escribirAscii("\033[");
+        escribirEntero(linea);
+        escribirAscii(";1H");
+    }
+    
+    private void escribirTexto(String texto) {
+        escribir(texto.getBytes(Charset.defaultCharset()));
+    }
+    
+    private void escribirEntero(int valor) {
+        escribirAscii(Integer.toString(valor));
+    }
+    
+    private void escribirAscii(String texto) {
+        asegurarCapacidad(texto.length());
+        for (int k = 0; k < texto.length(); k++) {
+            buffer[longitud++] = (byte) texto.charAt(k);
+        }
+    }
+    
+    private void escribir(byte[] bytes) {
+        asegurarCapacidad(bytes.length);
+        System.arraycopy(bytes, 0, buffer, longitud, bytes.length);
+        longitud += bytes.length;
+    }
+    
+    private void asegurarCapacidad(int extra) {
+        if (longitud + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, longitud + extra));
+        }
+    }
+    
+    private static byte[] ascii(String texto) {
+        byte[] bytes = new byte[texto.length()];
+        for (int k = 0; k < texto.length(); k++) {
+            bytes[k] = (byte) texto.charAt(k);
+        }
+        return bytes;
+    }
+}
\ No newline at end of file
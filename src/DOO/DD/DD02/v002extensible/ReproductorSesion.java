@@ -0,0 +1,158 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Reproduce sin consola una sesión grabada por GrabadoraSesion y comprueba el estado final
+public class ReproductorSesion {
+    private final ConfiguracionSimulacion configuracion;
+    private final ByteBuffer registros;
+    private Simulacion simulacion;
+    private int comandos;
+    private long turnos;
+    private long tiempoNanos;
+    private boolean tieneSumaEsperada;
+    private long sumaEsperada;
+    private long sumaObtenida;
+    
+    public ReproductorSesion(Path ruta) throws IOException {
+        ByteBuffer datos = ByteBuffer.wrap(Files.readAllBytes(ruta));
+        if (datos.remaining() < 4 || datos.getInt() != GrabadoraSesion.MAGIA) {
+            throw new IOException("El fichero no es una sesión grabada: " + ruta);
+        }
+        int version = datos.getInt();
+        if (version != GrabadoraSesion.VERSION) {
+            throw new IOException("Versión de sesión no soportada: " + version);
+        }
+        this.configuracion = Instantanea.conOpciones(new ConfiguracionSimulacion()
+                                                     .conTamano(datos.getInt(), datos.getInt())
+                                                     .conObstaculos(datos.getInt())
+                                                     .conSuciedad(datos.getInt())
+                                                     .conSemilla(datos.getLong())
+                                                     .inteligente(datos.get() != 0), datos.get())
+            .conEstaciones(datos.getInt(), datos.getInt());
+        this.configuracion.conParametros(configuracion.getParametros().copiar()
+                                         .conBateria(datos.getInt())
+                                         .conBolsa(datos.getInt())
+                                         .conGato(datos.getInt(), datos.getInt()));
+        this.registros = datos.slice();
+    }
+    
+    // Ejecuta la sesión completa; devuelve true si el estado final coincide con el grabado
+    public boolean reproducir() {
+        long inicio = System.nanoTime();
+        simulacion = new Simulacion(configuracion.copiar());
+        simulacion.setSilenciosa(true);
+        simulacion.inicializar();
+        comandos = 0;
+        turnos = 0;
+        tieneSumaEsperada = false;
+        
+        ByteBuffer datos = registros.duplicate();
+        boolean activa = true;
+        while (datos.hasRemaining()) {
+            byte registro = datos.get();
+            if (registro == GrabadoraSesion.FIN) {
+                tieneSumaEsperada = true;
+                sumaEsperada = datos.getLong();
+                break;
+            }
+            if (!activa) {
+                continue; // Tras salir solo puede quedar el registro final
+            }
+            if (registro == Simulacion.COMANDO_TURNO) {
+                int racha = leerVarint(datos);
+                for (int i = 0; i < racha; i++) {
+                    simulacion.ejecutarTurno();
+                }
+                comandos += racha;
+                turnos += racha;
+            } else {
+                comandos++;
+                activa = simulacion.procesarComando((char) registro);
+            }
+        }
+        
+        simulacion.getRegistroEventos().cerrar();
+        tiempoNanos = System.nanoTime() - inicio;
+        sumaObtenida = simulacion.sumaComprobacion();
+        return coincide();
+    }
+    
+    // Una grabación interrumpida (sin registro final) se reproduce pero no se puede verificar
+    public boolean coincide() {
+        return !tieneSumaEsperada || sumaEsperada == sumaObtenida;
+    }
+    
+    public boolean tieneSumaEsperada() {
+        return tieneSumaEsperada;
+    }
+    
+    public long getSumaEsperada() {
+        return sumaEsperada;
+    }
+    
+    public long getSumaObtenida() {
+        return sumaObtenida;
+    }
+    
+    public Simulacion getSimulacion() {
+        return simulacion;
+    }
+    
+    public int getComandos() {
+        return comandos;
+    }
+    
+    public long getTurnos() {
+        return turnos;
+    }
+    
+    public long getTiempoNanos() {
+        return tiempoNanos;
+    }
+    
+    private static int leerVarint(ByteBuffer datos) {
+        int valor = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = datos.get();
+            valor |= (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while ((b & 0x80) != 0);
+        return valor;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Uso: ReproductorSesion <sesión> [repeticiones]");
+            return;
+        }
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        ReproductorSesion reproductor = new ReproductorSesion(Path.of(args[0]));
+        
+        boolean correcta = true;
+        long tiempoTotal = 0;
+        for (int i = 0; i < repeticiones; i++) {
+            correcta &= reproductor.reproducir();
+            tiempoTotal += reproductor.getTiempoNanos();
+        }
+        
+        double segundos = tiempoTotal / 1e9;
+        System.out.printf("%d comandos (%d turnos) x %d en %.3f s (%.0f turnos/s)%n",
+                          reproductor.getComandos(), reproductor.getTurnos(), repeticiones,
+                          segundos, reproductor.getTurnos() * repeticiones / segundos);
+        if (!reproductor.tieneSumaEsperada()) {
+            System.out.println("Grabación incompleta: no hay suma de comprobación que verificar.");
+        } else if (correcta) {
+            System.out.println("Estado final correcto: " + Long.toHexString(reproductor.getSumaObtenida()));
+        } else {
+            System.out.println("¡Divergencia! Esperada " + Long.toHexString(reproductor.getSumaEsperada()) +
+                               ", obtenida " + Long.toHexString(reproductor.getSumaObtenida()));
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
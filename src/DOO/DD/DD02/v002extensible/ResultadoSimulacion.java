@@ -0,0 +1,56 @@
+package DOO.DD.DD02.v002extensible;
+
+public class ResultadoSimulacion {
+    private final MotivoFin motivoFin;
+    private final int turnos;
+    private final int pasos;
+    private final int bateriaConsumida;
+    private final int suciedadRestante;
+    private final int gatosAparecidos;
+    private final long tiempoNanos;
+    
+    public ResultadoSimulacion(MotivoFin motivoFin, int turnos, int pasos, int bateriaConsumida,
+                               int suciedadRestante, int gatosAparecidos, long tiempoNanos) {
+        this.motivoFin = motivoFin;
+        this.turnos = turnos;
+        this.pasos = pasos;
+        this.bateriaConsumida = bateriaConsumida;
+        this.suciedadRestante = suciedadRestante;
+        this.gatosAparecidos = gatosAparecidos;
+        this.tiempoNanos = tiempoNanos;
+    }
+    
+    public MotivoFin getMotivoFin() {
+        return motivoFin;
+    }
+    
+    public int getTurnos() {
+        return turnos;
+    }
+    
+    public int getPasos() {
+        return pasos;
+    }
+    
+    public int getBateriaConsumida() {
+        return bateriaConsumida;
+    }
+    
+    public int getSuciedadRestante() {
+        return suciedadRestante;
+    }
+    
+    public int getGatosAparecidos() {
+        return gatosAparecidos;
+    }
+    
+    public long getTiempoNanos() {
+        return tiempoNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s en %d turnos, %d pasos, suciedad restante %d, gatos %d, %.3f ms",
+                             motivoFin, turnos, pasos, suciedadRestante, gatosAparecidos, tiempoNanos / 1e6);
+    }
+}
\ No newline at end of file
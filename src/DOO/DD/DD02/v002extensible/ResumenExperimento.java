@@ -0,0 +1,55 @@
+package DOO.DD.DD02.v002extensible;
+
+public class ResumenExperimento {
+    private final int ejecuciones;
+    private final int ejecucionesLimpias;
+    private final Distribucion pasosHastaLimpiar;
+    private final Distribucion bateriaConsumida;
+    private final Distribucion suciedadRestante;
+    private final long tiempoNanos;
+    
+    public ResumenExperimento(int ejecuciones, int ejecucionesLimpias, Distribucion pasosHastaLimpiar,
+                              Distribucion bateriaConsumida, Distribucion suciedadRestante, long tiempoNanos) {
+        this.ejecuciones = ejecuciones;
+        this.ejecucionesLimpias = ejecucionesLimpias;
+        this.pasosHastaLimpiar = pasosHastaLimpiar;
+        this.bateriaConsumida = bateriaConsumida;
+        this.suciedadRestante = suciedadRestante;
+        this.tiempoNanos = tiempoNanos;
+    }
+    
+    public int getEjecuciones() {
+        return ejecuciones;
+    }
+    
+    public int getEjecucionesLimpias() {
+        return ejecucionesLimpias;
+    }
+    
+    // Solo incluye las ejecuciones que terminaron con el suelo limpio
+    public Distribucion getPasosHastaLimpiar() {
+        return pasosHastaLimpiar;
+    }
+    
+    public Distribucion getBateriaConsumida() {
+        return bateriaConsumida;
+    }
+    
+    public Distribucion getSuciedadRestante() {
+        return suciedadRestante;
+    }
+    
+    public long getTiempoNanos() {
+        return tiempoNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%d ejecuciones (%d limpias) en %.2f s%n" +
+                             "  Pasos hasta limpiar: %s%n" +
+                             "  Batería consumida:   %s%n" +
+                             "  Suciedad restante:   %s",
+                             ejecuciones, ejecucionesLimpias, tiempoNanos / 1e9,
+                             pasosHastaLimpiar, bateriaConsumida, suciedadRestante);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package DOO.DD.DD02.v002extensible;
+
+// Copia inmutable de las métricas de una simulación en un instante dado
+public class ResumenMetricas {
+    private final long instanteNanos;
+    private final long turnos;
+    private final long pasos;
+    private final long celdasLimpiadas;
+    private final long gatosAparecidos;
+    private final long movimientosBloqueados;
+    private final HistogramaLatencias latenciaTurno;
+    private final HistogramaLatencias latenciaMovimiento;
+    private final HistogramaLatencias latenciaPlanificador;
+    
+    public ResumenMetricas(long instanteNanos, long turnos, long pasos, long celdasLimpiadas,
+                           long gatosAparecidos, long movimientosBloqueados,
+                           HistogramaLatencias latenciaTurno, HistogramaLatencias latenciaMovimiento,
+                           HistogramaLatencias latenciaPlanificador) {
+        this.instanteNanos = instanteNanos;
+        this.turnos = turnos;
+        this.pasos = pasos;
+        this.celdasLimpiadas = celdasLimpiadas;
+        this.gatosAparecidos = gatosAparecidos;
+        this.movimientosBloqueados = movimientosBloqueados;
+        this.latenciaTurno = latenciaTurno;
+        this.latenciaMovimiento = latenciaMovimiento;
+        this.latenciaPlanificador = latenciaPlanificador;
+    }
+    
+    public long getInstanteNanos() {
+        return instanteNanos;
+    }
+    
+    public long getTurnos() {
+        return turnos;
+    }
+    
+    public long getPasos() {
+        return pasos;
+    }
+    
+    public long getCeldasLimpiadas() {
+        return celdasLimpiadas;
+    }
+    
+    public long getGatosAparecidos() {
+        return gatosAparecidos;
+    }
+    
+    public long getMovimientosBloqueados() {
+        return movimientosBloqueados;
+    }
+    
+    public HistogramaLatencias getLatenciaTurno() {
+        return latenciaTurno;
+    }
+    
+    public HistogramaLatencias getLatenciaMovimiento() {
+        return latenciaMovimiento;
+    }
+    
+    public HistogramaLatencias getLatenciaPlanificador() {
+        return latenciaPlanificador;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        texto.append("turnos=").append(turnos)
+             .append(" pasos=").append(pasos)
+             .append(" celdasLimpiadas=").append(celdasLimpiadas)
+             .append(" gatos=").append(gatosAparecidos)
+             .append(" bloqueados=").append(movimientosBloqueados);
+        describir(texto, "turno", latenciaTurno);
+        describir(texto, "movimiento", latenciaMovimiento);
+        describir(texto, "planificador", latenciaPlanificador);
+        return texto.toString();
+    }
+    
+    private static void describir(StringBuilder texto, String nombre, HistogramaLatencias histograma) {
+        texto.append(' ').append(nombre).append("[ns p50=").append(histograma.percentil(50))
+             .append(" p99=").append(histograma.percentil(99))
+             .append(" p99.9=").append(histograma.percentil(99.9))
+             .append(" max=").append(histograma.getMaximo()).append(']');
+    }
+}
\ No newline at end of file
@@ -1,105 +1,273 @@
 package DOO.DD.DD02.v002extensible;
 
-import java.util.Random;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Scanner;
+import java.util.zip.CRC32C;
 
 public class Simulacion {
+    public static final char COMANDO_TURNO = '\n';
+    public static final char COMANDO_SALIR = 'q';
+    
+    private static final byte SIN_GATO = 0;
+    private static final byte GATO_ACTIVO = 1;
+    private static final byte GATO_EN_RESERVA = 2;
+    
     private Mundo mundo;
     private Aspiradora aspiradora;
     private Gato gato;
-    private Random random;
+    private Gato gatoEnReserva; // Último gato desaparecido, reutilizado en la siguiente aparición
+    private Aleatorio random;
+    private Aleatorio randomAspiradora;
     private boolean modoAutomatico;
-    private boolean modoInteligente;
+    private EstrategiaLimpieza estrategia;            // La que decide los turnos automáticos
+    private EstrategiaLimpieza estrategiaInteligente; // La que se alterna con la aleatoria con 'i'
     private int turno;
+    private ConfiguracionSimulacion configuracion;
+    private boolean silenciosa;
+    private int gatosAparecidos;
+    private Renderizador renderizador;
+    private RegistroEventos eventos;
+    private Instrumentacion instrumentacion;
     
     public Simulacion(int filas, int columnas) {
-        this.mundo = new Mundo(filas, columnas);
-        this.random = new Random();
+        this(new ConfiguracionSimulacion().conTamano(filas, columnas));
+    }
+    
+    public Simulacion(ConfiguracionSimulacion configuracion) {
+        // Los campos de distancias reservan varios enteros por celda: en un mundo por bloques se
+        // rechazan desde el principio los modos que los necesitan
+        if (configuracion.isMundoPorBloques() && (configuracion.isConRecorrido() || configuracion.isPorCercania())) {
+            throw new IllegalArgumentException("Los modos por cercanía y con recorrido no están disponibles en un mundo por bloques");
+        }
+        this.configuracion = configuracion;
+        // Una sola semilla de la que se derivan flujos independientes para cada componente
+        Aleatorio raiz = new Aleatorio(configuracion.getSemilla());
+        this.mundo = configuracion.isMundoPorBloques()
+                     ? Mundo.porBloques(configuracion.getFilas(), configuracion.getColumnas(), raiz.dividir())
+                     : new Mundo(configuracion.getFilas(), configuracion.getColumnas(), raiz.dividir());
+        this.random = raiz.dividir();
+        this.randomAspiradora = raiz.dividir();
         this.modoAutomatico = true;
-        this.modoInteligente = false;
+        // Una estrategia propia sustituye a la inteligente y empieza activa
+        this.estrategiaInteligente = configuracion.getEstrategia() != null
+                                     ? configuracion.getEstrategia().get()
+                                     : estrategiaSegunModo(configuracion);
+        this.estrategia = configuracion.getEstrategia() != null || configuracion.isModoInteligente()
+                          ? estrategiaInteligente
+                          : new EstrategiaAleatoria();
         this.turno = 0;
+        this.renderizador = new Renderizador();
+        if (configuracion.isPorCercania()) {
+            mundo.getCampoDistancias();
+        }
+        if (configuracion.isRutasJerarquicas()) {
+            mundo.getGrafoJerarquico();
+        }
+        this.eventos = configuracion.getVerbosidad() == Verbosidad.NINGUNA
+                       ? RegistroEventos.NULO
+                       : new RegistroEventosAsincrono(System.out, configuracion.getVerbosidad());
+    }
+    
+    private static EstrategiaLimpieza estrategiaSegunModo(ConfiguracionSimulacion configuracion) {
+        if (configuracion.isConRecorrido()) {
+            return new EstrategiaConRecorrido();
+        }
+        if (configuracion.isPorCercania()) {
+            return new EstrategiaPorCercania();
+        }
+        return new EstrategiaMasSucia();
     }
     
     public void inicializar() {
-        mundo.generarObstaculos(5);
+        mundo.generarObstaculos(configuracion.getPorcentajeObstaculos());
         
-        mundo.generarSuciedad(30);
+        mundo.generarSuciedad(configuracion.getPorcentajeSuciedad());
         
-        int filaAsp, columnaAsp;
-        do {
-            filaAsp = random.nextInt(mundo.filas);
-            columnaAsp = random.nextInt(mundo.columnas);
-        } while (!mundo.posicionAccesible(filaAsp, columnaAsp));
+        if (configuracion.getCargadores() > 0 || configuracion.getVaciados() > 0) {
+            mundo.generarEstaciones(configuracion.getCargadores(), configuracion.getVaciados());
+        }
         
-        this.aspiradora = new Aspiradora(filaAsp, columnaAsp);
+        int celdaAsp = mundo.celdaAccesibleAlAzar(random);
+        if (celdaAsp < 0) {
+            throw new IllegalStateException("No queda ninguna celda libre para la aspiradora");
+        }
+        
+        this.aspiradora = nuevaAspiradora(celdaAsp / mundo.columnas, celdaAsp % mundo.columnas);
+        this.aspiradora.setRegistroEventos(eventos);
+        this.aspiradora.setInstrumentacion(instrumentacion);
+        this.aspiradora.setDespacho(configuracion.getDespacho());
         
         this.gato = null;
     }
     
+    private Aspiradora nuevaAspiradora(int fila, int columna) {
+        ParametrosLimpieza parametros = configuracion.getParametros();
+        return new Aspiradora(fila, columna, randomAspiradora,
+                              parametros.getBateriaMaxima(), parametros.getCapacidadBolsa());
+    }
+    
     public void ejecutarTurno() {
         turno++;
-        System.out.println("Turno " + turno);
+        long inicioTurno = instrumentacion != null ? instrumentacion.iniciarTurno(turno) : 0;
+        if (!silenciosa) {
+            System.out.println("Turno " + turno);
+        }
         
-        if (aspiradora.getBateria() > 0 && aspiradora.getBasuraRecogida() < aspiradora.getCapacidadBolsa()) {
+        // Con recorrido la aspiradora puede ir con la bolsa llena hasta la estación de vaciado
+        if (aspiradora.getBateria() > 0
+                && (estrategia.admiteBolsaLlena() || aspiradora.getBasuraRecogida() < aspiradora.getCapacidadBolsa())) {
+            long inicioMovimiento = inicioTurno != 0 ? System.nanoTime() : 0;
             if (modoAutomatico) {
-                if (modoInteligente) {
-                    Posicion posicionMasSucia = mundo.buscarPosicionMasSucia();
-                    if (posicionMasSucia != null) {
-                        aspiradora.moverHaciaObjetivo(mundo, posicionMasSucia);
-                    } else {
-                        aspiradora.moverAleatorio(mundo);
-                    }
-                } else {
-                    aspiradora.moverAleatorio(mundo);
-                }
-            } else {
+                aspiradora.mover(mundo, estrategia);
+            } else if (!silenciosa) {
                 System.out.println("Modo manual: usa WASD para mover la aspiradora.");
             }
+            if (inicioMovimiento != 0) {
+                instrumentacion.registrarMovimiento(System.nanoTime() - inicioMovimiento);
+            }
         }
         
         if (gato == null) {
-            if (random.nextInt(100) < 10) {
-                int filaGato, columnaGato;
-                do {
-                    filaGato = random.nextInt(mundo.filas);
-                    columnaGato = random.nextInt(mundo.columnas);
-                } while (!mundo.posicionAccesible(filaGato, columnaGato));
+            // La aspiradora ocupa una celda accesible, así que siempre hay sitio para el gato
+            if (random.nextInt(100) < configuracion.getParametros().getProbabilidadGato()) {
+                int celdaGato = mundo.celdaAccesibleAlAzar(random);
+                int filaGato = celdaGato / mundo.columnas;
+                int columnaGato = celdaGato % mundo.columnas;
                 
-                gato = new Gato(filaGato, columnaGato, 10);
-                System.out.println("¡Un gato ha aparecido!");
+                if (gatoEnReserva == null) {
+                    gato = new Gato(filaGato, columnaGato, configuracion.getParametros().getPasosGato(),
+                                    random.dividir());
+                } else {
+                    gato = gatoEnReserva;
+                    gato.reaparecer(filaGato, columnaGato, configuracion.getParametros().getPasosGato());
+                }
+                gato.setRegistroEventos(eventos);
+                gato.setDespacho(configuracion.getDespacho());
+                gatosAparecidos++;
+                eventos.publicar(TipoEvento.GATO_APARECIDO, filaGato, columnaGato, 0, 0);
             }
         } else {
             boolean gatoSigueEnMundo = gato.moverYEnsuciar(mundo);
             if (!gatoSigueEnMundo) {
-                System.out.println("El gato ha desaparecido.");
+                eventos.publicar(TipoEvento.GATO_DESAPARECIDO, gato.getPosicion().getFila(),
+                                 gato.getPosicion().getColumna(), 0, 0);
+                gatoEnReserva = gato;
                 gato = null;
             }
         }
         
-        mundo.imprimir(aspiradora, gato);
+        if (inicioTurno != 0) {
+            instrumentacion.finalizarTurno(inicioTurno);
+        }
         
-        mostrarEstadisticas();
+        if (!silenciosa && renderizador.tocaDibujar(turno)) {
+            imprimir();
+        }
+    }
+    
+    // Dibuja el mapa con las estadísticas debajo
+    public void imprimir() {
+        eventos.vaciar();
+        renderizador.dibujar(mundo, aspiradora, gato, lineasEstadisticas());
+    }
+    
+    public void setRenderizador(Renderizador renderizador) {
+        this.renderizador = renderizador;
+    }
+    
+    // Solo afecta a los mensajes propios de la simulación; los eventos dependen del registro
+    public void setSilenciosa(boolean silenciosa) {
+        this.silenciosa = silenciosa;
+    }
+    
+    public void setRegistroEventos(RegistroEventos eventos) {
+        this.eventos.cerrar();
+        this.eventos = eventos;
+        if (aspiradora != null) {
+            aspiradora.setRegistroEventos(eventos);
+        }
+        if (gato != null) {
+            gato.setRegistroEventos(eventos);
+        }
+    }
+    
+    public void setInstrumentacion(Instrumentacion instrumentacion) {
+        this.instrumentacion = instrumentacion;
+        instrumentacion.conectar(this);
+        if (aspiradora != null) {
+            aspiradora.setInstrumentacion(instrumentacion);
+        }
+    }
+    
+    public Instrumentacion getInstrumentacion() {
+        return instrumentacion;
+    }
+    
+    public RegistroEventos getRegistroEventos() {
+        return eventos;
+    }
+    
+    public Mundo getMundo() {
+        return mundo;
+    }
+    
+    public Aspiradora getAspiradora() {
+        return aspiradora;
+    }
+    
+    public int getTurno() {
+        return turno;
+    }
+    
+    public int getGatosAparecidos() {
+        return gatosAparecidos;
     }
     
     public void mostrarEstadisticas() {
-        System.out.println("Batería: " + aspiradora.getBateria() + "%");
-        System.out.println("Bolsa de basura: " + aspiradora.getBasuraRecogida() + 
-                           "/" + aspiradora.getCapacidadBolsa());
-        System.out.println("Pasos dados: " + aspiradora.getPasos());
-        System.out.println("Suciedad restante: " + mundo.calcularSuciedadTotal() + " unidades");
-        System.out.println("Modo: " + (modoAutomatico ? 
-                          (modoInteligente ? "Automático Inteligente" : "Automático Aleatorio") : 
-                          "Manual"));
+        eventos.vaciar();
+        for (String linea : lineasEstadisticas()) {
+            System.out.println(linea);
+        }
+    }
+    
+    private String[] lineasEstadisticas() {
+        return new String[] {
+            "Batería: " + aspiradora.getBateria() * 100 / aspiradora.getBateriaMaxima() + "%",
+            "Bolsa de basura: " + aspiradora.getBasuraRecogida() + "/" + aspiradora.getCapacidadBolsa(),
+            "Pasos dados: " + aspiradora.getPasos(),
+            "Suciedad restante: " + mundo.calcularSuciedadTotal() + " unidades",
+            "Modo: " + (modoAutomatico ?
+                        (modoInteligente() ? "Automático Inteligente" : "Automático Aleatorio") :
+                        "Manual")
+        };
     }
     
     public void toggleModoAutomatico() {
         modoAutomatico = !modoAutomatico;
-        System.out.println("Modo cambiado a: " + (modoAutomatico ? "Automático" : "Manual"));
+        if (!silenciosa) {
+            System.out.println("Modo cambiado a: " + (modoAutomatico ? "Automático" : "Manual"));
+        }
     }
     
     public void toggleModoInteligente() {
-        modoInteligente = !modoInteligente;
-        System.out.println("Modo inteligente: " + (modoInteligente ? "Activado" : "Desactivado"));
+        estrategia = modoInteligente() ? new EstrategiaAleatoria() : estrategiaInteligente;
+        if (!silenciosa) {
+            System.out.println("Modo inteligente: " + (modoInteligente() ? "Activado" : "Desactivado"));
+        }
+    }
+    
+    private boolean modoInteligente() {
+        return estrategia == estrategiaInteligente;
+    }
+    
+    EstrategiaLimpieza getEstrategia() {
+        return estrategia;
+    }
+    
+    public void setCriterioDesempate(CriterioDesempate criterio) {
+        mundo.setCriterioDesempate(criterio);
     }
     
     public void moverAspiradoraManual(char direccion) {
@@ -116,24 +284,165 @@ public class Simulacion {
         if (mundo.posicionAccesible(nuevaFila, nuevaColumna)) {
             aspiradora.getPosicion().setFila(nuevaFila);
             aspiradora.getPosicion().setColumna(nuevaColumna);
-            
-            Celda celdaActual = mundo.getCelda(nuevaFila, nuevaColumna);
-            boolean cambio = celdaActual.aceptar(aspiradora);
-            
-            if (cambio && celdaActual instanceof CeldaSucia) {
-                mundo.setCelda(nuevaFila, nuevaColumna, 
-                               new CeldaLimpia(nuevaFila, nuevaColumna));
-            }
-        } else {
+            aspiradora.actuarEnCeldaActual(mundo);
+        } else if (!silenciosa) {
             System.out.println("No se puede mover en esa dirección.");
         }
     }
     
+    // Aplica un comando del bucle interactivo; devuelve false si el comando termina la sesión
+    public boolean procesarComando(char comando) {
+        switch (comando) {
+            case COMANDO_TURNO:
+                ejecutarTurno();
+                break;
+            case COMANDO_SALIR:
+                return false;
+            case 'm':
+                toggleModoAutomatico();
+                break;
+            case 'i':
+                toggleModoInteligente();
+                break;
+            case 'r':
+                aspiradora.cargarBateria();
+                break;
+            case 'v':
+                aspiradora.vaciarBolsa();
+                break;
+            case 'w':
+            case 'a':
+            case 's':
+            case 'd':
+                if (!modoAutomatico) {
+                    moverAspiradoraManual(comando);
+                    if (!silenciosa) {
+                        imprimir();
+                    }
+                } else if (!silenciosa) {
+                    System.out.println("Debes cambiar a modo manual primero (m).");
+                }
+                break;
+            default:
+                if (!silenciosa) {
+                    System.out.println("Comando no reconocido.");
+                }
+        }
+        return true;
+    }
+    
+    // Suma de comprobación (CRC32C) del estado completo: turno, entidades, flujos aleatorios y celdas
+    public long sumaComprobacion() {
+        CRC32C crc = new CRC32C();
+        ByteBuffer estado = ByteBuffer.allocate(bytesEstado());
+        guardarEstado(estado);
+        estado.flip();
+        crc.update(estado);
+        
+        ByteBuffer celdas = ByteBuffer.allocate(Math.min(mundo.filas * mundo.columnas, 1 << 16));
+        int total = mundo.filas * mundo.columnas;
+        for (int desde = 0; desde < total; desde += celdas.capacity()) {
+            int cantidad = Math.min(celdas.capacity(), total - desde);
+            celdas.clear();
+            mundo.exportarCeldas(celdas, desde, cantidad);
+            celdas.flip();
+            crc.update(celdas);
+        }
+        return crc.getValue();
+    }
+    
+    ConfiguracionSimulacion getConfiguracion() {
+        return configuracion;
+    }
+    
+    int bytesEstado() {
+        int bytes = 4 + 1 + 1 + 4 + 8 + 1 + aspiradora.bytesEstado() + mundo.bytesEstado();
+        if (gato != null || gatoEnReserva != null) {
+            bytes += Gato.BYTES_ESTADO;
+        }
+        return bytes;
+    }
+    
+    void guardarEstado(ByteBuffer destino) {
+        destino.putInt(turno);
+        destino.put((byte) (modoAutomatico ? 1 : 0));
+        destino.put((byte) (modoInteligente() ? 1 : 0));
+        destino.putInt(gatosAparecidos);
+        destino.putLong(random.getEstado());
+        if (gato != null) {
+            destino.put(GATO_ACTIVO);
+            gato.guardarEstado(destino);
+        } else if (gatoEnReserva != null) {
+            destino.put(GATO_EN_RESERVA);
+            gatoEnReserva.guardarEstado(destino);
+        } else {
+            destino.put(SIN_GATO);
+        }
+        aspiradora.guardarEstado(destino);
+        mundo.guardarEstado(destino);
+    }
+    
+    // Las celdas del mundo deben haberse importado antes
+    void restaurarEstado(ByteBuffer origen) {
+        turno = origen.getInt();
+        modoAutomatico = origen.get() != 0;
+        estrategia = origen.get() != 0 ? estrategiaInteligente : new EstrategiaAleatoria();
+        gatosAparecidos = origen.getInt();
+        random.setEstado(origen.getLong());
+        byte estadoGato = origen.get();
+        gato = null;
+        gatoEnReserva = null;
+        if (estadoGato != SIN_GATO) {
+            Gato restaurado = new Gato(0, 0, 0, new Aleatorio(0));
+            restaurado.restaurarEstado(origen);
+            restaurado.setRegistroEventos(eventos);
+            restaurado.setDespacho(configuracion.getDespacho());
+            if (estadoGato == GATO_ACTIVO) {
+                gato = restaurado;
+            } else {
+                gatoEnReserva = restaurado;
+            }
+        }
+        aspiradora = nuevaAspiradora(0, 0);
+        aspiradora.restaurarEstado(origen);
+        aspiradora.setRegistroEventos(eventos);
+        aspiradora.setInstrumentacion(instrumentacion);
+        aspiradora.setDespacho(configuracion.getDespacho());
+        mundo.restaurarEstado(origen);
+    }
+    
+    // Sustituye todos los flujos aleatorios por otros derivados de una nueva semilla
+    public void resembrar(long semilla) {
+        Aleatorio raiz = new Aleatorio(semilla);
+        mundo.getAleatorio().setEstado(raiz.nextLong());
+        random.setEstado(raiz.nextLong());
+        aspiradora.getAleatorio().setEstado(raiz.nextLong());
+        Gato conFlujo = gato != null ? gato : gatoEnReserva;
+        if (conFlujo != null) {
+            conFlujo.getAleatorio().setEstado(raiz.nextLong());
+        }
+    }
+    
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         
-        Simulacion simulacion = new Simulacion(10, 20);
+        Simulacion simulacion = new Simulacion(new ConfiguracionSimulacion()
+                                               .conTamano(10, 20)
+                                               .conVerbosidad(Verbosidad.DETALLE));
         simulacion.inicializar();
+        GrabadoraSesion grabadora = null;
+        for (String arg : args) {
+            if ("ansi".equals(arg)) {
+                simulacion.setRenderizador(new Renderizador(System.out, Renderizador.Modo.DIFERENCIAL, 1));
+            } else if (arg.startsWith("grabar=")) {
+                try {
+                    grabadora = new GrabadoraSesion(Path.of(arg.substring("grabar=".length())),
+                                                    simulacion.getConfiguracion());
+                } catch (IOException e) {
+                    System.out.println("No se puede grabar la sesión: " + e.getMessage());
+                }
+            }
+        }
         
         System.out.println("Simulación de Aspiradora");
         System.out.println("------------------------");
@@ -147,55 +456,29 @@ public class Simulacion {
         System.out.println("  q: Salir");
         System.out.println("------------------------");
         
-        simulacion.mundo.imprimir(simulacion.aspiradora, simulacion.gato);
-        simulacion.mostrarEstadisticas();
+        simulacion.imprimir();
         
         boolean salir = false;
         while (!salir) {
+            simulacion.eventos.vaciar();
             System.out.print("> ");
-            String comando = scanner.nextLine().trim().toLowerCase();
+            String linea = scanner.nextLine().trim().toLowerCase();
+            char comando = linea.isEmpty() ? COMANDO_TURNO : linea.charAt(0);
             
-            if (comando.isEmpty()) {
-                simulacion.ejecutarTurno();
-            } else {
-                char c = comando.charAt(0);
-                switch (c) {
-                    case 'q':
-                        salir = true;
-                        break;
-                    case 'm':
-                        simulacion.toggleModoAutomatico();
-                        break;
-                    case 'i':
-                        simulacion.toggleModoInteligente();
-                        break;
-                    case 'r':
-                        simulacion.aspiradora.cargarBateria();
-                        break;
-                    case 'v':
-                        simulacion.aspiradora.vaciarBolsa();
-                        break;
-                    case 'w':
-                    case 'a':
-                    case 's':
-                    case 'd':
-                        if (!simulacion.modoAutomatico) {
-                            simulacion.moverAspiradoraManual(c);
-                            simulacion.mundo.imprimir(simulacion.aspiradora, simulacion.gato);
-                            simulacion.mostrarEstadisticas();
-                        } else {
-                            System.out.println("Debes cambiar a modo manual primero (m).");
-                        }
-                        break;
-                    default:
-                        System.out.println("Comando no reconocido.");
+            if (grabadora != null) {
+                try {
+                    grabadora.registrar(comando);
+                } catch (IOException e) {
+                    System.out.println("Grabación interrumpida: " + e.getMessage());
+                    grabadora = null;
                 }
             }
+            salir = !simulacion.procesarComando(comando);
             
-            if (simulacion.mundo.calcularSuciedadTotal() == 0) {
+            if (simulacion.mundo.estaLimpio()) {
                 System.out.println("¡Enhorabuena! Se ha limpiado toda la suciedad.");
                 System.out.println("Pasos totales: " + simulacion.aspiradora.getPasos());
-                simulacion.mundo.imprimir(simulacion.aspiradora, simulacion.gato);
+                simulacion.imprimir();
                 salir = true;
             }
             
@@ -210,6 +493,16 @@ public class Simulacion {
             }
         }
         
+        simulacion.eventos.cerrar();
+        simulacion.renderizador.cerrar();
+        if (grabadora != null) {
+            try {
+                long suma = grabadora.cerrar(simulacion);
+                System.out.println("Sesión grabada (suma de comprobación " + Long.toHexString(suma) + ")");
+            } catch (IOException e) {
+                System.out.println("No se pudo completar la grabación: " + e.getMessage());
+            }
+        }
         System.out.println("Fin de la simulación.");
         scanner.close();
     }
@@ -0,0 +1,31 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Reparte las franjas [desde, hasta) entre los hilos del pool por bisección, una franja por tarea
+class TareaFranjas extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    
+    private final transient IntConsumer trabajo;
+    private final int desde;
+    private final int hasta;
+    
+    TareaFranjas(IntConsumer trabajo, int desde, int hasta) {
+        this.trabajo = trabajo;
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+    
+    @Override
+    protected void compute() {
+        if (hasta - desde <= 1) {
+            for (int f = desde; f < hasta; f++) {
+                trabajo.accept(f);
+            }
+            return;
+        }
+        int medio = (desde + hasta) >>> 1;
+        invokeAll(new TareaFranjas(trabajo, desde, medio), new TareaFranjas(trabajo, medio, hasta));
+    }
+}
\ No newline at end of file
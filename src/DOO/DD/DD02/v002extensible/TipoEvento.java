@@ -0,0 +1,69 @@
+package DOO.DD.DD02.v002extensible;
+
+public enum TipoEvento {
+    CELDA_LIMPIADA(Verbosidad.DETALLE),
+    CELDA_ENSUCIADA(Verbosidad.DETALLE),
+    SUCIEDAD_AUMENTADA(Verbosidad.DETALLE),
+    GATO_APARECIDO(Verbosidad.AVISOS),
+    GATO_DESAPARECIDO(Verbosidad.AVISOS),
+    BATERIA_AGOTADA(Verbosidad.AVISOS),
+    BATERIA_CARGADA(Verbosidad.AVISOS),
+    BOLSA_LLENA(Verbosidad.AVISOS),
+    BOLSA_VACIADA(Verbosidad.AVISOS),
+    ASPIRADORA_ATRAPADA(Verbosidad.AVISOS);
+    
+    static final TipoEvento[] VALORES = values();
+    
+    private final Verbosidad verbosidadMinima;
+    
+    TipoEvento(Verbosidad verbosidadMinima) {
+        this.verbosidadMinima = verbosidadMinima;
+    }
+    
+    public boolean visibleCon(Verbosidad verbosidad) {
+        return verbosidad.compareTo(verbosidadMinima) >= 0;
+    }
+    
+    // Los datos de un evento son siempre cuatro enteros: fila, columna, nivel anterior y nivel actual
+    public void formatear(StringBuilder texto, int fila, int columna, int anterior, int actual) {
+        switch (this) {
+            case CELDA_LIMPIADA:
+                texto.append("Limpiado celda [").append(fila).append(',').append(columna)
+                     .append("]. Nivel anterior: ").append(anterior).append(", Nivel actual: ");
+                if (actual == 0) {
+                    texto.append("limpio");
+                } else {
+                    texto.append(actual);
+                }
+                break;
+            case CELDA_ENSUCIADA:
+                texto.append("Gato ensució celda limpia [").append(fila).append(',').append(columna).append(']');
+                break;
+            case SUCIEDAD_AUMENTADA:
+                texto.append("Gato aumentó suciedad en celda [").append(fila).append(',').append(columna)
+                     .append("]. Nivel anterior: ").append(anterior).append(", Nivel actual: ").append(actual);
+                break;
+            case GATO_APARECIDO:
+                texto.append("¡Un gato ha aparecido!");
+                break;
+            case GATO_DESAPARECIDO:
+                texto.append("El gato ha desaparecido.");
+                break;
+            case BATERIA_AGOTADA:
+                texto.append("¡Sin batería! La aspiradora se ha detenido.");
+                break;
+            case BATERIA_CARGADA:
+                texto.append("Batería cargada al 100%.");
+                break;
+            case BOLSA_LLENA:
+                texto.append("¡Bolsa llena! La aspiradora se ha detenido.");
+                break;
+            case BOLSA_VACIADA:
+                texto.append("Bolsa de basura vaciada.");
+                break;
+            case ASPIRADORA_ATRAPADA:
+                texto.append("La aspiradora está atrapada y no puede moverse.");
+                break;
+        }
+    }
+}
\ No newline at end of file
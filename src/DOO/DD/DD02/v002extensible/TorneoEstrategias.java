@@ -0,0 +1,175 @@
+package DOO.DD.DD02.v002extensible;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+// Enfrenta las estrategias registradas sobre los mismos mundos: cada estrategia se ejecuta con las
+// mismas semillas, y todas las parejas (estrategia, mundo) se reparten a la vez en un ForkJoinPool.
+// La clasificación ordena por ejecuciones limpias, después por pasos medios hasta limpiar, batería
+// media consumida y tiempo de CPU por decisión.
+public class TorneoEstrategias {
+    
+    public static class Puesto {
+        private final String nombre;
+        private final ResumenExperimento resumen;
+        private final double nanosCpuPorDecision;
+        
+        Puesto(String nombre, ResumenExperimento resumen, double nanosCpuPorDecision) {
+            this.nombre = nombre;
+            this.resumen = resumen;
+            this.nanosCpuPorDecision = nanosCpuPorDecision;
+        }
+        
+        public String getNombre() {
+            return nombre;
+        }
+        
+        public ResumenExperimento getResumen() {
+            return resumen;
+        }
+        
+        // Tiempo de CPU del hilo durante las simulaciones entre las decisiones tomadas: incluye el resto
+        // del turno, pero no las esperas del hilo cuando el pool está saturado
+        public double getNanosCpuPorDecision() {
+            return nanosCpuPorDecision;
+        }
+        
+        @Override
+        public String toString() {
+            // Sin ejecuciones limpias no hay pasos hasta limpiar que promediar
+            String pasos = resumen.getEjecucionesLimpias() == 0
+                           ? "-" : String.format("%.1f", resumen.getPasosHastaLimpiar().media());
+            return String.format("%-14s %5d/%-5d %10s %10.1f %10.1f", nombre, resumen.getEjecucionesLimpias(),
+                                 resumen.getEjecuciones(), pasos, resumen.getBateriaConsumida().media(),
+                                 nanosCpuPorDecision);
+        }
+    }
+    
+    // Cuenta las decisiones de la estrategia que envuelve
+    private static class Contada implements EstrategiaLimpieza {
+        private final EstrategiaLimpieza estrategia;
+        private long decisiones;
+        
+        Contada(EstrategiaLimpieza estrategia) {
+            this.estrategia = estrategia;
+        }
+        
+        @Override
+        public int elegirPaso(Mundo mundo, Aspiradora aspiradora) {
+            decisiones++;
+            return estrategia.elegirPaso(mundo, aspiradora);
+        }
+        
+        @Override
+        public boolean admiteBolsaLlena() {
+            return estrategia.admiteBolsaLlena();
+        }
+    }
+    
+    private final List<String> nombres = new ArrayList<>();
+    private final List<Supplier<? extends EstrategiaLimpieza>> fabricas = new ArrayList<>();
+    private final ForkJoinPool pool;
+    
+    public TorneoEstrategias() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    public TorneoEstrategias(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    // La fábrica se llama una vez por simulación
+    public TorneoEstrategias registrar(String nombre, Supplier<? extends EstrategiaLimpieza> fabrica) {
+        nombres.add(nombre);
+        fabricas.add(fabrica);
+        return this;
+    }
+    
+    // Las estrategias de la simulación; la de recorrido solo tiene sentido con estaciones
+    public TorneoEstrategias registrarIncluidas() {
+        return registrar("aleatoria", EstrategiaAleatoria::new)
+            .registrar("mas_sucia", EstrategiaMasSucia::new)
+            .registrar("por_cercania", EstrategiaPorCercania::new)
+            .registrar("con_recorrido", EstrategiaConRecorrido::new);
+    }
+    
+    public List<Puesto> ejecutar(ConfiguracionSimulacion base, int mundos, long semillaBase) {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        long[] semillas = new long[mundos];
+        Aleatorio generadorSemillas = new Aleatorio(semillaBase);
+        for (int i = 0; i < mundos; i++) {
+            semillas[i] = generadorSemillas.nextLong();
+        }
+        
+        int estrategias = fabricas.size();
+        ResultadoSimulacion[] resultados = new ResultadoSimulacion[estrategias * mundos];
+        long[] decisiones = new long[estrategias * mundos];
+        long[] nanosCpu = new long[estrategias * mundos];
+        pool.invoke(new TareaFranjas(k -> {
+            Contada contada = new Contada(fabricas.get(k / mundos).get());
+            // Cada simulación corre entera en un hilo del pool: su tiempo de CPU es el de la ejecución
+            long inicioCpu = hilos.getCurrentThreadCpuTime();
+            resultados[k] = EjecutorDesatendido.ejecutar(base.copiar()
+                                                         .conSemilla(semillas[k % mundos])
+                                                         .conEstrategia(() -> contada));
+            nanosCpu[k] = hilos.getCurrentThreadCpuTime() - inicioCpu;
+            decisiones[k] = contada.decisiones;
+        }, 0, estrategias * mundos));
+        
+        List<Puesto> clasificacion = new ArrayList<>();
+        for (int e = 0; e < estrategias; e++) {
+            int limpias = 0;
+            long[] pasosLimpias = new long[mundos];
+            long[] bateria = new long[mundos];
+            long[] suciedad = new long[mundos];
+            long totalDecisiones = 0;
+            long totalNanosCpu = 0;
+            long tiempoNanos = 0;
+            for (int m = 0; m < mundos; m++) {
+                ResultadoSimulacion resultado = resultados[e * mundos + m];
+                if (resultado.getMotivoFin() == MotivoFin.LIMPIO) {
+                    pasosLimpias[limpias++] = resultado.getPasos();
+                }
+                bateria[m] = resultado.getBateriaConsumida();
+                suciedad[m] = resultado.getSuciedadRestante();
+                tiempoNanos += resultado.getTiempoNanos();
+                totalDecisiones += decisiones[e * mundos + m];
+                totalNanosCpu += nanosCpu[e * mundos + m];
+            }
+            ResumenExperimento resumen = new ResumenExperimento(mundos, limpias,
+                                                                new Distribucion(Arrays.copyOf(pasosLimpias, limpias)),
+                                                                new Distribucion(bateria), new Distribucion(suciedad),
+                                                                tiempoNanos);
+            clasificacion.add(new Puesto(nombres.get(e), resumen,
+                                         totalDecisiones == 0 ? 0 : (double) totalNanosCpu / totalDecisiones));
+        }
+        
+        // Sin ninguna ejecución limpia la media de pasos no dice nada: la decide el número de limpias
+        clasificacion.sort(Comparator.comparingInt((Puesto p) -> -p.resumen.getEjecucionesLimpias())
+                               .thenComparingDouble(p -> p.resumen.getEjecucionesLimpias() == 0
+                                                         ? 0 : p.resumen.getPasosHastaLimpiar().media())
+                               .thenComparingDouble(p -> p.resumen.getBateriaConsumida().media())
+                               .thenComparingDouble(p -> p.nanosCpuPorDecision));
+        return clasificacion;
+    }
+    
+    public static void main(String[] args) {
+        int mundos = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        ConfiguracionSimulacion base = new ConfiguracionSimulacion()
+            .conTamano(20, 40)
+            .conEstaciones(2, 1)
+            .conParametros(new ParametrosLimpieza().conSuciedad(10).conBateria(2000).conBolsa(500));
+        
+        List<Puesto> clasificacion = new TorneoEstrategias().registrarIncluidas().ejecutar(base, mundos, 42);
+        System.out.printf("   %-14s %11s %10s %10s %10s%n", "estrategia", "limpias", "pasos", "bateria", "ns cpu/dec");
+        for (int i = 0; i < clasificacion.size(); i++) {
+            System.out.printf("%2d %s%n", i + 1, clasificacion.get(i));
+        }
+    }
+}
\ No newline at end of file
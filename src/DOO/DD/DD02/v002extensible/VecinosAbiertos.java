@@ -0,0 +1,97 @@
+package DOO.DD.DD02.v002extensible;
+
+// Máscara de 8 bits por celda: el bit d está activo si el vecino en la dirección d (en el orden de
+// Posicion.DESPLAZAMIENTO_*) está dentro del plano y es accesible. Mundo la corrige en O(1) cuando
+// un obstáculo aparece o desaparece con setCelda; si los obstáculos cambian por otra vía
+// (generación, restauración) se rehace entera en la siguiente consulta.
+class VecinosAbiertos {
+    // BIT_ACTIVO[mascara * 8 + k] = dirección del k-ésimo bit activo de la máscara
+    private static final byte[] BIT_ACTIVO = new byte[256 * 8];
+    
+    static {
+        for (int mascara = 0; mascara < 256; mascara++) {
+            int k = 0;
+            for (int d = 0; d < 8; d++) {
+                if ((mascara & (1 << d)) != 0) {
+                    BIT_ACTIVO[mascara * 8 + k++] = (byte) d;
+                }
+            }
+        }
+    }
+    
+    private final Mundo mundo;
+    private final int filas;
+    private final int columnas;
+    private final byte[] mascaras;
+    private int version;
+    private boolean valido;
+    
+    VecinosAbiertos(Mundo mundo) {
+        this.mundo = mundo;
+        this.filas = mundo.filas;
+        this.columnas = mundo.columnas;
+        this.mascaras = new byte[filas * columnas];
+    }
+    
+    // Dirección abierta elegida con una sola tirada; la máscara no puede estar vacía
+    static int direccionAlAzar(int mascara, Aleatorio random) {
+        return BIT_ACTIVO[mascara * 8 + random.nextInt(Integer.bitCount(mascara))];
+    }
+    
+    // La máscara de una celda mirando sus 8 vecinos, sin la tabla
+    static int calcular(Mundo mundo, int fila, int columna) {
+        int mascara = 0;
+        for (int d = 0; d < 8; d++) {
+            int f = fila + Posicion.DESPLAZAMIENTO_FILA[d];
+            int c = columna + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+            if (f >= 0 && f < mundo.filas && c >= 0 && c < mundo.columnas && mundo.esAccesible(f * mundo.columnas + c)) {
+                mascara |= 1 << d;
+            }
+        }
+        return mascara;
+    }
+    
+    int mascara(int indice) {
+        asegurarValido();
+        return mascaras[indice] & 0xFF;
+    }
+    
+    void invalidar() {
+        valido = false;
+    }
+    
+    // Se llama justo después de escribir la celda, con la versión de obstáculos ya incrementada
+    void obstaculoCambiado(int indice, boolean accesible) {
+        if (!valido || version != mundo.getVersionObstaculos() - 1) {
+            valido = false;
+            return;
+        }
+        int fila = indice / columnas;
+        int columna = indice % columnas;
+        for (int d = 0; d < 8; d++) {
+            int f = fila + Posicion.DESPLAZAMIENTO_FILA[d];
+            int c = columna + Posicion.DESPLAZAMIENTO_COLUMNA[d];
+            if (f < 0 || f >= filas || c < 0 || c >= columnas) {
+                continue;
+            }
+            // Desde el vecino, esta celda queda en la dirección opuesta
+            int bit = 1 << ((d + 4) & 7);
+            int w = f * columnas + c;
+            mascaras[w] = (byte) (accesible ? mascaras[w] | bit : mascaras[w] & ~bit);
+        }
+        version = mundo.getVersionObstaculos();
+    }
+    
+    private void asegurarValido() {
+        if (valido && version == mundo.getVersionObstaculos()) {
+            return;
+        }
+        for (int fila = 0; fila < filas; fila++) {
+            for (int columna = 0; columna < columnas; columna++) {
+                mascaras[fila * columnas + columna] = (byte) calcular(mundo, fila, columna);
+            }
+        }
+        version = mundo.getVersionObstaculos();
+        valido = true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package DOO.DD.DD02.v002extensible;
+
+public enum Verbosidad {
+    NINGUNA, // Se descartan todos los eventos
+    AVISOS,  // Solo eventos de las entidades: gatos, batería, bolsa...
+    DETALLE  // También cada celda limpiada o ensuciada
+}
\ No newline at end of file
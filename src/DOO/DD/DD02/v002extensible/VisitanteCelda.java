@@ -6,4 +6,8 @@ public interface VisitanteCelda {
     boolean visitarCeldaSucia(CeldaSucia celda);
     
     boolean visitarCeldaObstaculo(CeldaObstaculo celda);
+    
+    boolean visitarCeldaCargador(CeldaCargador celda);
+    
+    boolean visitarCeldaVaciado(CeldaVaciado celda);
 }
\ No newline at end of file